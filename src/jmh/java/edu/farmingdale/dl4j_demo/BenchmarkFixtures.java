@@ -0,0 +1,105 @@
+package edu.farmingdale.dl4j_demo;
+
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * BenchmarkFixtures
+ * Small, deterministic inputs shared by the benchmarks: a subset of
+ * {@code mnist_png/testing} copied into a temporary directory, its compiled
+ * cache, a synthetic 280x280 canvas drawing and the model under test.
+ */
+final class BenchmarkFixtures {
+    /** Images copied from each digit folder into the fixture directory. */
+    static final int IMAGES_PER_DIGIT = 20;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Copies the first {@link #IMAGES_PER_DIGIT} images of every digit folder
+     * into a fresh temporary directory, deleted when the JVM exits.
+     * @return The fixture root, laid out as {@code <digit>/<image>.png}
+     */
+    @NotNull
+    static File fixtureDir() throws IOException {
+        Path source = new File(TrainCNN.TEST_DATA_PATH).toPath();
+        Path target = Files.createTempDirectory("mnist-fixture");
+        try (Stream<Path> digits = Files.list(source)) {
+            for (Path digit : digits.filter(Files::isDirectory).sorted().toList()) {
+                Path dest = Files.createDirectories(target.resolve(digit.getFileName().toString()));
+                try (Stream<Path> images = Files.list(digit)) {
+                    for (Path image : images.sorted().limit(IMAGES_PER_DIGIT).toList()) {
+                        Files.copy(image, dest.resolve(image.getFileName().toString()));
+                    }
+                }
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteRecursively(target)));
+        return target.toFile();
+    }
+
+    /**
+     * @return One normalized minibatch of {@code size} examples from the fixture subset
+     */
+    @NotNull
+    static DataSet minibatch(@NotNull File fixtureDir, int size) throws IOException {
+        File cacheFile = new File(fixtureDir.getParentFile(), fixtureDir.getName() + ".bin");
+        MnistBinaryCache cache = MnistBinaryCache.loadOrBuild(fixtureDir, cacheFile, msg -> { });
+        cacheFile.deleteOnExit();
+        CachedMnistDataSetIterator iter = new CachedMnistDataSetIterator(cache, size, 1234);
+        iter.setPreProcessor(new ImagePreProcessingScaler(0, 1));
+        return iter.next();
+    }
+
+    /**
+     * @return The trained model if {@code mnist-model.zip} exists, otherwise a freshly initialized one
+     */
+    @NotNull
+    static MultiLayerNetwork model() throws IOException {
+        File modelFile = new File("mnist-model.zip");
+        if (modelFile.exists()) {
+            return ModelSerializer.restoreMultiLayerNetwork(modelFile);
+        }
+        MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(new TrainingConfig.Builder().build()));
+        model.init();
+        return model;
+    }
+
+    /**
+     * @return A 280x280 canvas-style drawing: a thick black "0" on white
+     */
+    @NotNull
+    static WritableImage canvasDrawing() {
+        WritableImage image = new WritableImage(280, 280);
+        PixelWriter writer = image.getPixelWriter();
+        for (int y = 0; y < 280; y++) {
+            for (int x = 0; x < 280; x++) {
+                double r = Math.hypot((x - 140) / 0.75, y - 140);
+                writer.setArgb(x, y, r > 70 && r < 95 ? 0xFF000000 : 0xFFFFFFFF);
+            }
+        }
+        return image;
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
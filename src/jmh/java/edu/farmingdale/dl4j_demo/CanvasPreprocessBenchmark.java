@@ -0,0 +1,61 @@
+package edu.farmingdale.dl4j_demo;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.WritableImage;
+import org.datavec.image.loader.NativeImageLoader;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Canvas snapshot to network input: the original BufferedImage / NativeImageLoader /
+ * scaler / rsub chain against the fused {@link CanvasPreprocessor}.
+ * Compare {@code gc.alloc.rate.norm} from {@code -prof gc} for the allocation difference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CanvasPreprocessBenchmark {
+    private WritableImage drawing;
+    private final CanvasPreprocessor preprocessor = new CanvasPreprocessor();
+
+    @Setup
+    public void setup() {
+        drawing = BenchmarkFixtures.canvasDrawing();
+    }
+
+    @Benchmark
+    public INDArray legacyChain() throws Exception {
+        BufferedImage bImage = SwingFXUtils.fromFXImage(drawing, null);
+        BufferedImage resized = new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.drawImage(bImage, 0, 0, 28, 28, null);
+        g2d.dispose();
+        INDArray imageArray = new NativeImageLoader(28, 28, 1).asMatrix(resized);
+        DataNormalization scaler = new ImagePreProcessingScaler(0, 1);
+        scaler.transform(imageArray);
+        return imageArray.rsub(1.0);
+    }
+
+    @Benchmark
+    public INDArray fusedPreprocessor() {
+        return preprocessor.toInput(drawing);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * DataParallelScalingReport
+ * Scaling report for {@link DataParallelTrainer}: trains a fresh network for
+ * one epoch at each worker count and prints epoch time, speedup and test
+ * accuracy, showing where adding workers stops paying off.
+ * Usage: {@code DataParallelScalingReport [averagingFrequency] [workerCounts...]}
+ */
+public final class DataParallelScalingReport {
+    private DataParallelScalingReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int averagingFrequency = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int[] counts = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : IntStream.iterate(1, n -> n <= Runtime.getRuntime().availableProcessors(), n -> n * 2).toArray();
+
+        TrainingConfig config = new TrainingConfig.Builder().build();
+        MnistBinaryCache train = MnistBinaryCache.loadOrBuild(new File(TrainCNN.TRAIN_DATA_PATH), new File(TrainCNN.TRAIN_CACHE_PATH), System.out::println);
+        MnistBinaryCache test = MnistBinaryCache.loadOrBuild(new File(TrainCNN.TEST_DATA_PATH), new File(TrainCNN.TEST_CACHE_PATH), System.out::println);
+        ImagePreProcessingScaler scaler = new ImagePreProcessingScaler(0, 1);
+
+        System.out.println("workers | epoch ms | speedup | accuracy");
+        long baseline = 0;
+        for (int workers : counts) {
+            MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(config));
+            model.init();
+            long start = System.nanoTime();
+            try (DataParallelTrainer trainer = new DataParallelTrainer(model, train, workers, config.getBatchSize(),
+                    config.getSeed(), averagingFrequency, scaler)) {
+                trainer.fitEpoch();
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (baseline == 0) baseline = millis;
+            CachedMnistDataSetIterator testIter = new CachedMnistDataSetIterator(test, config.getBatchSize(), config.getSeed());
+            testIter.setPreProcessor(scaler);
+            Evaluation eval = model.evaluate(testIter);
+            System.out.printf("%7d | %8d | %6.2fx | %.4f%n", workers, millis, (double) baseline / millis, eval.accuracy());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.datavec.api.io.labels.ParentPathLabelGenerator;
+import org.datavec.api.split.FileSplit;
+import org.datavec.image.loader.NativeImageLoader;
+import org.datavec.image.recordreader.ImageRecordReader;
+import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * EpochTimeComparison
+ * Before/after report for the compiled dataset cache: times training epochs
+ * of a fresh network fed the way the original pipeline did ({@code FileSplit}
+ * -> {@code ImageRecordReader} -> {@code RecordReaderDataSetIterator}, decoding
+ * every PNG each epoch) and from a {@link MnistBinaryCache}, plus a data-only
+ * pass of each and the one-time cost of compiling the cache.
+ * Usage: {@code EpochTimeComparison [sourceDir] [epochs]}; the default source
+ * is {@code mnist_png/testing} (10000 images), pass the training directory for
+ * the full 60000.
+ */
+public final class EpochTimeComparison {
+    private static final int BATCH_SIZE = 64;
+    private static final long SEED = 1234;
+    private static final int WARMUP_BATCHES = 30;
+
+    private EpochTimeComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        File sourceDir = new File(args.length > 0 ? args[0] : TrainCNN.TEST_DATA_PATH);
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        ImagePreProcessingScaler scaler = new ImagePreProcessingScaler(0, 1);
+
+        ImageRecordReader reader = new ImageRecordReader(28, 28, 1, new ParentPathLabelGenerator());
+        reader.initialize(new FileSplit(sourceDir, NativeImageLoader.ALLOWED_FORMATS, new Random(SEED)));
+        DataSetIterator pngIter = new RecordReaderDataSetIterator(reader, BATCH_SIZE, 1, 10);
+        pngIter.setPreProcessor(scaler);
+
+        File cacheFile = Files.createTempFile("epoch-comparison", ".bin").toFile();
+        cacheFile.deleteOnExit();
+        Files.delete(cacheFile.toPath()); // Time a cold compile
+        long start = System.nanoTime();
+        MnistBinaryCache cache = MnistBinaryCache.loadOrBuild(sourceDir, cacheFile, msg -> { });
+        long compileMillis = (System.nanoTime() - start) / 1_000_000;
+        CachedMnistDataSetIterator cachedIter = new CachedMnistDataSetIterator(cache, BATCH_SIZE, SEED);
+        cachedIter.setPreProcessor(scaler);
+
+        System.out.printf("%d images from %s, batch %d, %d epoch(s); cache compiled once in %d ms%n",
+                cache.size(), sourceDir.getPath(), BATCH_SIZE, epochs, compileMillis);
+        // Untimed warm-up, so JIT compilation and ND4J workspaces are not charged to whichever pipeline runs first
+        MultiLayerNetwork warmUp = newModel();
+        for (int i = 0; i < WARMUP_BATCHES && cachedIter.hasNext(); i++) {
+            warmUp.fit(cachedIter.next());
+        }
+        System.out.println("pipeline          | data-only pass ms | training epoch ms");
+        report("PNG record reader", pngIter, epochs);
+        report("binary cache", cachedIter, epochs);
+    }
+
+    /** Prints the mean time of a data-only pass and of a training epoch over {@code iter}. */
+    private static void report(String name, DataSetIterator iter, int epochs) {
+        long dataNanos = 0;
+        for (int e = 0; e < epochs; e++) {
+            iter.reset();
+            long start = System.nanoTime();
+            while (iter.hasNext()) {
+                iter.next();
+            }
+            dataNanos += System.nanoTime() - start;
+        }
+
+        // Same seed and configuration for both pipelines, so only the input path differs
+        MultiLayerNetwork model = newModel();
+        long fitNanos = 0;
+        for (int e = 0; e < epochs; e++) {
+            iter.reset();
+            long start = System.nanoTime();
+            model.fit(iter);
+            fitNanos += System.nanoTime() - start;
+        }
+        System.out.printf("%-17s | %17d | %17d%n", name, dataNanos / epochs / 1_000_000, fitNanos / epochs / 1_000_000);
+    }
+
+    private static MultiLayerNetwork newModel() {
+        MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(new TrainingConfig.Builder().build()));
+        model.init();
+        return model;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.dataset.DataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One training step (forward, backward, Nesterov update) on a 64-example
+ * minibatch, using the same network configuration as {@code runTraining}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FitStepBenchmark {
+    private MultiLayerNetwork model;
+    private DataSet minibatch;
+
+    @Setup
+    public void setup() throws Exception {
+        model = new MultiLayerNetwork(TrainCNN.buildConfiguration(new TrainingConfig.Builder().build()));
+        model.init();
+        minibatch = BenchmarkFixtures.minibatch(BenchmarkFixtures.fixtureDir(), 64);
+    }
+
+    @Benchmark
+    public double fitStep() {
+        model.fit(minibatch);
+        return model.score();
+    }
+}
@@ -0,0 +1,52 @@
+package edu.farmingdale.dl4j_demo;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * HyperparameterSweepRunner
+ * Runs a {@link HyperparameterSweep} over
+ * {@link HyperparameterSweep.SearchSpace#defaults()} and prints the ranked table.
+ * Usage: {@code HyperparameterSweepRunner [trials] [epochs] [parallelism] [trainExamples]};
+ * parallelism 0 picks it from cores and memory, trainExamples 0 trains on the
+ * full training split.
+ */
+public final class HyperparameterSweepRunner {
+    private static final int VALIDATION_SIZE = 5000;
+
+    private HyperparameterSweepRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int trainLimit = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        // Validation is opt-in for training runs, but the pruner needs a held-out score
+        TrainingConfig base = new TrainingConfig.Builder().epochs(epochs).validationSize(VALIDATION_SIZE).build();
+        HyperparameterSweep.SearchSpace space = HyperparameterSweep.SearchSpace.defaults();
+        MnistBinaryCache train = MnistBinaryCache.loadOrBuild(new File(TrainCNN.TRAIN_DATA_PATH),
+                new File(TrainCNN.TRAIN_CACHE_PATH), System.out::println);
+
+        // Same hold-out as runTraining with this validation size, so sweep accuracies match training logs
+        int[][] split = TrainCNN.holdOut(train.size(),
+                Math.max(0, Math.min(base.getValidationSize(), train.size() - 1)), base.getSeed());
+        int[] trainExamples = split[0];
+        if (trainLimit > 0 && trainLimit < trainExamples.length) {
+            int[] pick = TrainCNN.holdOut(trainExamples.length, trainLimit, base.getSeed())[1];
+            int[] subset = new int[pick.length];
+            for (int i = 0; i < pick.length; i++) subset[i] = trainExamples[pick[i]];
+            trainExamples = subset;
+        }
+        System.out.printf("Sweeping %d of %d configurations for %d epoch(s) on %d training / %d validation images%n",
+                Math.min(trials, space.size()), space.size(), epochs,
+                trainExamples.length, split[1].length);
+
+        HyperparameterSweep sweep = new HyperparameterSweep(train, trainExamples, split[1], System.out::println);
+        long start = System.nanoTime();
+        List<HyperparameterSweep.TrialResult> results = sweep.run(space.sample(base, trials, base.getSeed()), parallelism);
+        System.out.printf("Sweep finished in %d s%n", (System.nanoTime() - start) / 1_000_000_000);
+        System.out.print(HyperparameterSweep.table(results));
+    }
+}
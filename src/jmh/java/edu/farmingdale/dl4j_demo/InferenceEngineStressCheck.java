@@ -0,0 +1,71 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * InferenceEngineStressCheck
+ * Multi-threaded stress check for {@link InferenceEngine}: scores the compiled
+ * test set single-threaded on the original model, then again from many threads
+ * through the engine, and fails if any output differs or any call throws.
+ * Usage: {@code InferenceEngineStressCheck [threads] [replicas]}
+ */
+public final class InferenceEngineStressCheck {
+    private InferenceEngineStressCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int replicas = args.length > 1 ? Integer.parseInt(args[1]) : InferenceEngine.defaultReplicaCount();
+
+        MultiLayerNetwork model = TrainCNN.getModel();
+        DataNormalization normalizer = TrainCNN.getNormalizer();
+        MnistBinaryCache cache = MnistBinaryCache.loadOrBuild(new File(TrainCNN.TEST_DATA_PATH),
+                new File(TrainCNN.TEST_CACHE_PATH), System.out::println);
+        CachedMnistDataSetIterator iter = new CachedMnistDataSetIterator(cache, 32, 1234);
+        iter.setPreProcessor(normalizer);
+
+        // Reference outputs, one model, one thread
+        List<INDArray> inputs = new ArrayList<>();
+        List<INDArray> expected = new ArrayList<>();
+        long start = System.nanoTime();
+        while (iter.hasNext()) {
+            DataSet ds = iter.next();
+            inputs.add(ds.getFeatures());
+            expected.add(model.output(ds.getFeatures()));
+        }
+        double singleMs = (System.nanoTime() - start) / 1e6;
+
+        InferenceEngine engine = new InferenceEngine(model, normalizer, replicas);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            start = System.nanoTime();
+            for (int i = 0; i < inputs.size(); i++) {
+                final int idx = i;
+                results.add(pool.submit(() -> engine.output(inputs.get(idx)).equalsWithEps(expected.get(idx), 1e-5)));
+            }
+            int mismatches = 0;
+            for (Future<Boolean> r : results) {
+                if (!r.get()) mismatches++;
+            }
+            double pooledMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%d batches: single-threaded %.0f ms, %d threads / %d replicas %.0f ms (%.2fx), mismatches: %d%n",
+                    inputs.size(), singleMs, threads, replicas, pooledMs, singleMs / pooledMs, mismatches);
+            if (mismatches > 0) {
+                throw new IllegalStateException(mismatches + " batches differed from single-threaded output");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ModelSerializer.restoreMultiLayerNetwork} on a model zip written the
+ * same way {@code runTraining} writes {@code mnist-model.zip} (with updater
+ * state and normalizer).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelRestoreBenchmark {
+    private File modelFile;
+
+    @Setup
+    public void setup() throws Exception {
+        modelFile = File.createTempFile("bench-model", ".zip");
+        modelFile.deleteOnExit();
+        CheckpointManager.writeModelFile(BenchmarkFixtures.model(), new ImagePreProcessingScaler(0, 1), null, modelFile);
+    }
+
+    @Benchmark
+    public MultiLayerNetwork restore() throws Exception {
+        return ModelSerializer.restoreMultiLayerNetwork(modelFile);
+    }
+}
@@ -0,0 +1,83 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * ModelSaveCheck
+ * Save-then-restore check for the model zip path
+ * ({@link CheckpointManager#writeModelFile}): trains a fresh network for a few
+ * steps so it has updater state, writes it with a normalizer and a checkpoint
+ * {@link CheckpointManager.State}, restores it the ways the app does, and fails
+ * if parameters, updater state, normalizer, position or output differ.
+ * Usage: {@code ModelSaveCheck}
+ */
+public final class ModelSaveCheck {
+    private ModelSaveCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        TrainingConfig config = new TrainingConfig.Builder().build();
+        MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(config));
+        model.init();
+        ImagePreProcessingScaler scaler = new ImagePreProcessingScaler(0, 1);
+        Nd4j.getRandom().setSeed(config.getSeed());
+        for (int i = 0; i < 3; i++) {
+            INDArray labels = Nd4j.zeros(DataType.FLOAT, 8, 10);
+            for (int r = 0; r < 8; r++) labels.putScalar(r, r % 10, 1.0);
+            DataSet ds = new DataSet(Nd4j.rand(DataType.FLOAT, 8, 1, 28, 28).muli(255), labels);
+            scaler.preProcess(ds);
+            model.fit(ds);
+        }
+        INDArray input = Nd4j.rand(DataType.FLOAT, 4, 1, 28, 28);
+        INDArray expected = model.output(input);
+        CheckpointManager.State state = new CheckpointManager.State(2, 17, model.getLayerWiseConfigurations().toJson(),
+                CheckpointManager.dataSetup(config));
+
+        File dir = Files.createTempDirectory("model-save-check").toFile();
+        File file = new File(dir, "model.zip");
+        try {
+            CheckpointManager.writeModelFile(model, scaler, state, file);
+            System.out.printf("Wrote %s (%d KB)%n", file.getName(), file.length() / 1024);
+
+            // As TrainCNN.getModel() loads mnist-model.zip
+            Pair<MultiLayerNetwork, ?> restored = ModelSerializer.restoreMultiLayerNetworkAndNormalizer(file, false);
+            MultiLayerNetwork network = restored.getFirst();
+            check("parameters", network.params().equalsWithEps(model.params(), 0));
+            check("output", network.output(input).equalsWithEps(expected, 1e-6));
+            check("normalizer type", restored.getSecond() instanceof ImagePreProcessingScaler);
+            ImagePreProcessingScaler restoredScaler = (ImagePreProcessingScaler) restored.getSecond();
+            check("normalizer range", restoredScaler.getMinRange() == scaler.getMinRange()
+                    && restoredScaler.getMaxRange() == scaler.getMaxRange());
+
+            // As CheckpointManager.latest() resumes a checkpoint
+            MultiLayerNetwork resumed = ModelSerializer.restoreMultiLayerNetwork(file, true);
+            check("updater state", resumed.getUpdater().getStateViewArray()
+                    .equalsWithEps(model.getUpdater().getStateViewArray(), 0));
+            check("iteration count", resumed.getIterationCount() == model.getIterationCount());
+            CheckpointManager.State restoredState = ModelSerializer.getObjectFromFile(file, CheckpointManager.STATE_KEY);
+            check("training state", state.equals(restoredState));
+            check("no temporary file left", !new File(dir, file.getName() + ".tmp").exists());
+            System.out.println("Save-then-restore check passed");
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(dir.toPath());
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.printf("%-24s %s%n", what, ok ? "ok" : "MISMATCH");
+        if (!ok) {
+            throw new IllegalStateException("Restored model differs: " + what);
+        }
+    }
+}
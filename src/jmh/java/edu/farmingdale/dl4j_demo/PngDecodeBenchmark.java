@@ -0,0 +1,68 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.datavec.api.io.labels.ParentPathLabelGenerator;
+import org.datavec.api.split.FileSplit;
+import org.datavec.image.loader.NativeImageLoader;
+import org.datavec.image.recordreader.ImageRecordReader;
+import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full pass over the fixture subset, decoding PNGs the way the original
+ * training pipeline did ({@code FileSplit} -> {@code ImageRecordReader} ->
+ * {@code RecordReaderDataSetIterator}), next to the same pass over the compiled
+ * binary cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PngDecodeBenchmark {
+    private DataSetIterator pngIter;
+    private CachedMnistDataSetIterator cachedIter;
+
+    @Setup
+    public void setup() throws Exception {
+        File fixture = BenchmarkFixtures.fixtureDir();
+        ImageRecordReader reader = new ImageRecordReader(28, 28, 1, new ParentPathLabelGenerator());
+        reader.initialize(new FileSplit(fixture, NativeImageLoader.ALLOWED_FORMATS, new Random(1234)));
+        pngIter = new RecordReaderDataSetIterator(reader, 64, 1, 10);
+
+        File cacheFile = new File(fixture.getParentFile(), fixture.getName() + ".bin");
+        cacheFile.deleteOnExit();
+        cachedIter = new CachedMnistDataSetIterator(MnistBinaryCache.loadOrBuild(fixture, cacheFile, msg -> { }), 64, 1234);
+    }
+
+    @Benchmark
+    public void decodePngWithImageRecordReader(Blackhole bh) {
+        pngIter.reset();
+        while (pngIter.hasNext()) {
+            bh.consume(pngIter.next());
+        }
+    }
+
+    @Benchmark
+    public void readCompiledCache(Blackhole bh) {
+        cachedIter.reset();
+        while (cachedIter.hasNext()) {
+            bh.consume(cachedIter.next());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package edu.farmingdale.dl4j_demo;
+
+import javafx.scene.image.WritableImage;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inference: the full single-sample {@link TrainCNN#predict} path from a canvas
+ * drawing, and raw {@code model.output} at several batch sizes.
+ * Divide the batched score by {@code batchSize} for per-image cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredictBenchmark {
+    /** State for the single-sample path; kept apart so it is not repeated per {@code batchSize}. */
+    @State(Scope.Benchmark)
+    public static class Single {
+        WritableImage drawing;
+        InferenceEngine engine;
+
+        @Setup
+        public void setup() throws Exception {
+            drawing = BenchmarkFixtures.canvasDrawing();
+            engine = new InferenceEngine(BenchmarkFixtures.model(), new ImagePreProcessingScaler(0, 1), 1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Batched {
+        @Param({"1", "8", "32", "128"})
+        public int batchSize;
+
+        MultiLayerNetwork model;
+        INDArray batch;
+
+        @Setup
+        public void setup() throws Exception {
+            model = BenchmarkFixtures.model();
+            DataSet ds = BenchmarkFixtures.minibatch(BenchmarkFixtures.fixtureDir(), batchSize);
+            batch = ds.getFeatures();
+        }
+    }
+
+    /** Mirrors {@link TrainCNN#predict}: fused preprocessing, pooled forward pass, argmax. */
+    @Benchmark
+    public int predictSingle(Single s) throws Exception {
+        INDArray input = s.engine.getCanvasPreprocessor().toInput(s.drawing);
+        return s.engine.output(input).argMax(1).getInt(0);
+    }
+
+    @Benchmark
+    public INDArray batchedOutput(Batched s) {
+        return s.model.output(s.batch);
+    }
+}
@@ -0,0 +1,123 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * QuantizationReport
+ * Export step and comparison report for {@link QuantizedModel}: quantizes
+ * {@code mnist-model.zip}, calibrating on a random sample of the test set,
+ * then compares accuracy, size and per-sample latency against the FP32
+ * network on the rest of it.
+ * Usage: {@code QuantizationReport [calibrationSize] [latencySamples]}
+ */
+public final class QuantizationReport {
+    private QuantizationReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calibrationSize = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int latencySamples = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        MultiLayerNetwork fp32 = TrainCNN.getModel();
+        DataNormalization normalizer = TrainCNN.getNormalizer();
+        MnistBinaryCache test = MnistBinaryCache.loadOrBuild(new File(TrainCNN.TEST_DATA_PATH),
+                new File(TrainCNN.TEST_CACHE_PATH), System.out::println);
+
+        // Disjoint calibration and evaluation examples
+        int[] order = IntStream.range(0, test.size()).toArray();
+        Random rng = new Random(1234);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        CachedMnistDataSetIterator calibrationIter = new CachedMnistDataSetIterator(test, calibrationSize, 1234,
+                Arrays.copyOfRange(order, 0, calibrationSize));
+        calibrationIter.setPreProcessor(normalizer);
+        INDArray calibration = calibrationIter.next().getFeatures();
+        int[] evalExamples = Arrays.copyOfRange(order, calibrationSize, order.length);
+
+        long zipBytes = new File("mnist-model.zip").length();
+        long fp32Bytes = fp32.numParams() * Float.BYTES;
+        int[] reference = predictions(fp32, test, normalizer, evalExamples);
+        double fp32Accuracy = accuracy(fp32, test, normalizer, evalExamples);
+        double fp32Latency = latencyMicros(fp32, test, normalizer, evalExamples, latencySamples);
+
+        System.out.printf("Evaluating on %d test images (%d held out for calibration)%n", evalExamples.length, calibrationSize);
+        System.out.println("model              |  size KB | accuracy |   delta | agreement | us/sample");
+        System.out.printf("FP32 zip + updater | %8d | %.4f   |         |           |%n", zipBytes / 1024, fp32Accuracy);
+        System.out.printf("FP32 params only   | %8d | %.4f   | %+.4f | %8.2f%% | %9.0f%n", fp32Bytes / 1024, fp32Accuracy, 0.0, 100.0, fp32Latency);
+        for (QuantizedModel.Precision precision : QuantizedModel.Precision.values()) {
+            File file = QuantizedModel.defaultFile(precision);
+            QuantizedModel.export(fp32, normalizer, precision, calibration, file);
+            long start = System.nanoTime();
+            QuantizedModel model = QuantizedModel.load(file, DataType.FLOAT);
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+            MultiLayerNetwork net = model.getNetwork();
+            double acc = accuracy(net, test, model.getNormalizer(), evalExamples);
+            int[] predicted = predictions(net, test, model.getNormalizer(), evalExamples);
+            int agree = 0;
+            for (int i = 0; i < predicted.length; i++) {
+                if (predicted[i] == reference[i]) agree++;
+            }
+            double latency = latencyMicros(net, test, model.getNormalizer(), evalExamples, latencySamples);
+            System.out.printf("%-18s | %8d | %.4f   | %+.4f | %8.2f%% | %9.0f  (loaded in %d ms)%n",
+                    precision.name(), file.length() / 1024, acc, acc - fp32Accuracy,
+                    100.0 * agree / predicted.length, latency, loadMillis);
+        }
+    }
+
+    private static CachedMnistDataSetIterator iterator(MnistBinaryCache cache, DataNormalization normalizer, int[] examples) {
+        CachedMnistDataSetIterator iter = new CachedMnistDataSetIterator(cache, 256, 1234, examples);
+        iter.setPreProcessor(normalizer);
+        return iter;
+    }
+
+    private static double accuracy(MultiLayerNetwork net, MnistBinaryCache cache, DataNormalization normalizer, int[] examples) {
+        Evaluation eval = net.evaluate(iterator(cache, normalizer, examples));
+        return eval.accuracy();
+    }
+
+    private static int[] predictions(MultiLayerNetwork net, MnistBinaryCache cache, DataNormalization normalizer, int[] examples) {
+        CachedMnistDataSetIterator iter = iterator(cache, normalizer, examples);
+        int[] out = new int[examples.length];
+        int n = 0;
+        while (iter.hasNext()) {
+            for (int p : net.output(iter.next().getFeatures()).argMax(1).toIntVector()) {
+                out[n++] = p;
+            }
+        }
+        return out;
+    }
+
+    /** Mean batch-1 forward time, after an untimed warm-up pass over the same inputs. */
+    private static double latencyMicros(MultiLayerNetwork net, MnistBinaryCache cache, DataNormalization normalizer,
+                                        int[] examples, int samples) {
+        CachedMnistDataSetIterator iter = new CachedMnistDataSetIterator(cache, 1, 1234, Arrays.copyOf(examples, samples));
+        iter.setPreProcessor(normalizer);
+        INDArray[] inputs = new INDArray[samples];
+        for (int i = 0; i < samples; i++) {
+            DataSet ds = iter.next();
+            inputs[i] = ds.getFeatures();
+        }
+        for (INDArray input : inputs) {
+            net.output(input);
+        }
+        long start = System.nanoTime();
+        for (INDArray input : inputs) {
+            net.output(input);
+        }
+        return (System.nanoTime() - start) / 1e3 / samples;
+    }
+}
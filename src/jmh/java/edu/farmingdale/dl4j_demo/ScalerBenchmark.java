@@ -0,0 +1,46 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.factory.Nd4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ImagePreProcessingScaler} on one 64-example minibatch of raw 0..255 pixels.
+ * The raw values are copied back in before each transform, since it works in place.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalerBenchmark {
+    private final ImagePreProcessingScaler scaler = new ImagePreProcessingScaler(0, 1);
+    private INDArray raw;
+    private INDArray features;
+
+    @Setup
+    public void setup() {
+        raw = Nd4j.rand(new long[]{64, 1, 28, 28}).muli(255);
+        features = raw.dup();
+    }
+
+    @Benchmark
+    public INDArray transform() {
+        features.assign(raw);
+        scaler.transform(features);
+        return features;
+    }
+}
@@ -0,0 +1,117 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SnapshotColdStartReport
+ * Cold-start report for {@link ModelSnapshot}: starts a fresh JVM per run that
+ * loads the model from {@code mnist-model.zip} or from the snapshot and makes
+ * one prediction through an {@link InferenceEngine}, and prints the median time from JVM start to the first
+ * prediction.
+ * Usage: {@code SnapshotColdStartReport [runs]}
+ */
+public final class SnapshotColdStartReport {
+    private SnapshotColdStartReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            coldStart(args[1]);
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        // Make sure the snapshot exists and is current
+        TrainCNN.getModel();
+        File snapshot = new File(TrainCNN.SNAPSHOT_PATH);
+        System.out.printf("%s: %d KB, %s: %d KB%n", TrainCNN.MODEL_PATH, new File(TrainCNN.MODEL_PATH).length() / 1024,
+                snapshot.getName(), snapshot.length() / 1024);
+
+        System.out.println("Median of " + runs + " fresh JVMs per format, in ms");
+        System.out.println("format   | ND4J startup | load | first prediction | JVM start to first prediction");
+        for (String format : new String[]{"zip", "snapshot"}) {
+            List<long[]> results = new ArrayList<>();
+            for (int r = 0; r < runs; r++) {
+                results.add(runChild(format));
+            }
+            long[] median = new long[4];
+            for (int i = 0; i < median.length; i++) {
+                final int col = i;
+                long[] column = results.stream().mapToLong(t -> t[col]).sorted().toArray();
+                median[i] = column[column.length / 2];
+            }
+            System.out.printf("%-8s | %12d | %4d | %16d | %d%n", format, median[0], median[1], median[2], median[3]);
+        }
+    }
+
+    /** Runs one cold start in a fresh JVM and parses its "backend load first total" line. */
+    private static long[] runChild(String format) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), SnapshotColdStartReport.class.getName(), "--child", format));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("COLD_START ")) {
+                    result = line.substring("COLD_START ".length());
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IOException("Cold-start run for " + format + " failed");
+        }
+        return Arrays.stream(result.split(" ")).mapToLong(Long::parseLong).toArray();
+    }
+
+    /**
+     * Child side of the report: load one way, build the serving engine, predict
+     * once through it, print the timings. Engine construction counts as loading.
+     */
+    private static void coldStart(String format) throws IOException, InterruptedException {
+        // Backend startup (native libraries, thread pools) is the same for both formats; time it separately
+        long backendStart = System.nanoTime();
+        Nd4j.create(DataType.FLOAT, 1);
+        long start = System.nanoTime();
+        MultiLayerNetwork network;
+        DataNormalization normalizer;
+        if (format.equals("zip")) {
+            Pair<MultiLayerNetwork, ?> restored =
+                    ModelSerializer.restoreMultiLayerNetworkAndNormalizer(new File(TrainCNN.MODEL_PATH), false);
+            network = restored.getFirst();
+            normalizer = restored.getSecond() instanceof DataNormalization stored ? stored : new ImagePreProcessingScaler(0, 1);
+        } else {
+            ModelSnapshot snapshot = ModelSnapshot.map(new File(TrainCNN.SNAPSHOT_PATH));
+            network = snapshot.getNetwork();
+            normalizer = snapshot.getNormalizer();
+        }
+        InferenceEngine engine = new InferenceEngine(network, normalizer, InferenceEngine.defaultReplicaCount());
+        long loaded = System.nanoTime();
+        INDArray input = engine.normalize(Nd4j.zeros(DataType.FLOAT, 1, 1, 28, 28));
+        engine.predict(input);
+        long predicted = System.nanoTime();
+        long sinceJvmStart = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("COLD_START " + (start - backendStart) / 1_000_000 + " " + (loaded - start) / 1_000_000
+                + " " + (predicted - loaded) / 1_000_000 + " " + sinceJvmStart);
+    }
+}
@@ -0,0 +1,272 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.datavec.api.io.labels.ParentPathLabelGenerator;
+import org.datavec.image.loader.NativeImageLoader;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * BatchScorer
+ * Headless bulk scoring of a directory tree of digit images.
+ *
+ * Files are listed lazily while scoring, grouped into batches, decoded in
+ * parallel on a worker pool and scored with one {@code output()} call per
+ * batch, in listing order. Only a fixed window of batches is in flight at a
+ * time, so memory use does not depend on how many images there are.
+ *
+ * Every image gets a CSV row with its predicted digit and confidence. When
+ * an image's parent directory is a digit (the {@code mnist_png} layout, as
+ * read by {@link ParentPathLabelGenerator}) its label is written too and
+ * counted in a confusion matrix, written to a second CSV.
+ */
+public class BatchScorer {
+    private static final Logger log = LoggerFactory.getLogger(BatchScorer.class);
+    private static final int CLASSES = 10;
+    private static final List<String> FORMATS = Arrays.asList(NativeImageLoader.ALLOWED_FORMATS);
+
+    private final InferenceEngine engine;
+    private final int batchSize;
+    private final int decodeThreads;
+    private final Consumer<String> logConsumer;
+
+    /** Totals of one {@link #score} run. */
+    public record Summary(long images, long failed, long labelled, long correct, long[][] confusion, double seconds) {
+        /** @return Accuracy over the labelled images (NaN if there were none) */
+        public double accuracy() {
+            return labelled == 0 ? Double.NaN : (double) correct / labelled;
+        }
+
+        /** @return Images scored per second, including decoding and writing */
+        public double imagesPerSecond() {
+            return seconds == 0 ? 0.0 : images / seconds;
+        }
+    }
+
+    /** A decoded batch: the files, their labels (-1 if unknown), pixels, and per-file decode errors. */
+    private record Batch(List<Path> files, int[] labels, float[] pixels, String[] errors) {}
+
+    /**
+     * @param engine        Model and normalizer to score with
+     * @param batchSize     Images per {@code output()} call
+     * @param decodeThreads Threads decoding images
+     * @param logConsumer   Receives progress lines
+     */
+    public BatchScorer(@NotNull InferenceEngine engine, int batchSize, int decodeThreads, @NotNull Consumer<String> logConsumer) {
+        if (batchSize <= 0 || decodeThreads <= 0) {
+            throw new IllegalArgumentException("Batch size and decode threads must be positive");
+        }
+        this.engine = engine;
+        this.batchSize = batchSize;
+        this.decodeThreads = decodeThreads;
+        this.logConsumer = logConsumer;
+    }
+
+    /**
+     * Scores every image under {@code root}.
+     * @param root        Directory to scan recursively
+     * @param predictions Destination CSV: {@code path,label,prediction,confidence,error}
+     * @return Totals, including the confusion matrix of the labelled images
+     */
+    @NotNull
+    public Summary score(@NotNull Path root, @NotNull Writer predictions) throws IOException, InterruptedException {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService decoders = Executors.newFixedThreadPool(decodeThreads, r -> {
+            Thread t = new Thread(r, "batch-decode-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ThreadLocal<NativeImageLoader> loaders = ThreadLocal.withInitial(() -> new NativeImageLoader(28, 28, 1));
+        ParentPathLabelGenerator labelGenerator = new ParentPathLabelGenerator();
+
+        long[][] confusion = new long[CLASSES][CLASSES];
+        long[] counts = new long[4]; // images, failed, labelled, correct
+        int window = decodeThreads * 2; // Batches decoding or waiting to be scored
+        ArrayDeque<Future<Batch>> inFlight = new ArrayDeque<>();
+        long start = System.nanoTime();
+        predictions.write("path,label,prediction,confidence,error\n");
+
+        try (Stream<Path> walk = Files.walk(root)) {
+            Iterator<Path> files = walk.filter(Files::isRegularFile).filter(BatchScorer::isImage).iterator();
+            while (files.hasNext()) {
+                List<Path> chunk = new ArrayList<>(batchSize);
+                while (chunk.size() < batchSize && files.hasNext()) {
+                    chunk.add(files.next());
+                }
+                inFlight.add(decoders.submit(() -> decode(chunk, loaders.get(), labelGenerator)));
+                if (inFlight.size() >= window) {
+                    write(root, await(inFlight.poll()), predictions, confusion, counts);
+                    progress(counts, start);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(root, await(inFlight.poll()), predictions, confusion, counts);
+                progress(counts, start);
+            }
+        } finally {
+            decoders.shutdownNow();
+        }
+        predictions.flush();
+        return new Summary(counts[0], counts[1], counts[2], counts[3], confusion, (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Decoder thread: reads a chunk of files into one pixel array (raw 0..255 values). */
+    private static Batch decode(List<Path> files, NativeImageLoader loader, ParentPathLabelGenerator labelGenerator) {
+        int n = files.size();
+        float[] pixels = new float[n * MnistBinaryCache.PIXELS];
+        int[] labels = new int[n];
+        String[] errors = new String[n];
+        for (int i = 0; i < n; i++) {
+            Path file = files.get(i);
+            labels[i] = label(labelGenerator, file);
+            try {
+                INDArray image = loader.asMatrix(file.toFile()); // Shape: [1, 1, 28, 28]
+                System.arraycopy(image.data().asFloat(), 0, pixels, i * MnistBinaryCache.PIXELS, MnistBinaryCache.PIXELS);
+            } catch (Exception e) {
+                errors[i] = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            }
+        }
+        return new Batch(files, labels, pixels, errors);
+    }
+
+    /** @return The digit named by the file's parent directory, or -1 if it is not one */
+    private static int label(ParentPathLabelGenerator labelGenerator, Path file) {
+        String name = labelGenerator.getLabelForPath(file.toString()).toString();
+        return name.length() == 1 && Character.isDigit(name.charAt(0)) ? name.charAt(0) - '0' : -1;
+    }
+
+    /** Scores a decoded batch and appends its rows. */
+    private void write(Path root, Batch batch, Writer out, long[][] confusion, long[] counts)
+            throws IOException, InterruptedException {
+        int n = batch.files().size();
+        INDArray input = Nd4j.create(batch.pixels(), new long[]{n, 1, 28, 28}, 'c');
+        INDArray output = engine.output(engine.normalize(input));
+        float[][] rows = output.toFloatMatrix();
+        for (int i = 0; i < n; i++) {
+            int label = batch.labels()[i];
+            String path = csv(root.relativize(batch.files().get(i)).toString().replace('\\', '/'));
+            if (batch.errors()[i] != null) {
+                counts[1]++;
+                out.write(String.format(Locale.ROOT, "%s,%s,,,%s\n", path, label < 0 ? "" : label, csv(batch.errors()[i])));
+                continue;
+            }
+            Prediction p = Prediction.fromProbabilities(rows[i]);
+            counts[0]++;
+            if (label >= 0) {
+                counts[2]++;
+                confusion[label][p.digit()]++;
+                if (label == p.digit()) counts[3]++;
+            }
+            out.write(String.format(Locale.ROOT, "%s,%s,%d,%.6f,\n", path, label < 0 ? "" : label, p.digit(), p.confidence()));
+        }
+    }
+
+    private void progress(long[] counts, long start) {
+        long scored = counts[0] + counts[1];
+        if (scored % (batchSize * 20L) < batchSize) { // Roughly every 20 batches
+            double seconds = (System.nanoTime() - start) / 1e9;
+            logConsumer.accept(String.format(Locale.ROOT, "%d images scored, %.0f images/sec", scored, scored / seconds));
+        }
+    }
+
+    private static Batch await(Future<Batch> future) throws InterruptedException, IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Decoding failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && FORMATS.contains(name.substring(dot + 1));
+    }
+
+    /** Quotes a CSV field if it contains a separator, quote or line break. */
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes a confusion matrix as CSV: one row per true label, one column per predicted digit.
+     */
+    public static void writeConfusion(@NotNull long[][] confusion, @NotNull Writer out) throws IOException {
+        StringBuilder header = new StringBuilder("label");
+        for (int d = 0; d < CLASSES; d++) header.append(",predicted_").append(d);
+        out.write(header.append('\n').toString());
+        for (int label = 0; label < CLASSES; label++) {
+            StringBuilder row = new StringBuilder(Integer.toString(label));
+            for (int d = 0; d < CLASSES; d++) row.append(',').append(confusion[label][d]);
+            out.write(row.append('\n').toString());
+        }
+    }
+
+    /**
+     * Scores a directory with the saved model.
+     * Arguments: {@code <inputDir> [predictions.csv] [batchSize] [decodeThreads]}. The
+     * confusion matrix goes next to the predictions, as {@code <name>-confusion.csv}.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchScorer <inputDir> [predictions.csv] [batchSize] [decodeThreads]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args.length > 1 ? args[1] : "predictions.csv");
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int decodeThreads = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        if (!Files.isDirectory(input)) {
+            System.err.println("Not a directory: " + input.toAbsolutePath());
+            System.exit(2);
+        }
+
+        BatchScorer scorer = new BatchScorer(TrainCNN.getEngine(), batchSize, decodeThreads, System.out::println);
+        Summary summary;
+        try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            summary = scorer.score(input, out);
+        }
+        String name = output.getFileName().toString();
+        Path confusionFile = output.resolveSibling(name.replaceFirst("\\.csv$", "") + "-confusion.csv");
+        if (summary.labelled() > 0) {
+            try (BufferedWriter out = Files.newBufferedWriter(confusionFile, StandardCharsets.UTF_8)) {
+                writeConfusion(summary.confusion(), out);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "Scored %d images in %.1f s (%.0f images/sec), %d could not be decoded%n",
+                summary.images(), summary.seconds(), summary.imagesPerSecond(), summary.failed());
+        System.out.println("Predictions written to " + output.toAbsolutePath());
+        if (summary.labelled() > 0) {
+            System.out.printf(Locale.ROOT, "Accuracy on %d labelled images: %.4f; confusion matrix written to %s%n",
+                    summary.labelled(), summary.accuracy(), confusionFile.toAbsolutePath());
+        }
+        log.info("Batch scoring finished: {} images, {} failed", summary.images(), summary.failed());
+    }
+}
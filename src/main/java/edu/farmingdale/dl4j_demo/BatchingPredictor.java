@@ -0,0 +1,274 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BatchingPredictor
+ * Collects concurrent single-image prediction requests into one batched
+ * forward pass. A dispatcher thread waits for the first request, then keeps
+ * collecting until either {@code maxBatchSize} requests are queued or
+ * {@code maxWait} has passed since the first one arrived. The batch runs on an
+ * {@link InferenceEngine} replica and each caller's {@link CompletableFuture}
+ * is completed with its own row of the output.
+ *
+ * Inputs that are already batched skip the window but run on the same
+ * forward-pass threads. Those are a small fixed pool of platform threads, so
+ * ND4J's per-thread workspaces stay allocated between requests, and
+ * {@link #warmUp} warms them before the first one.
+ *
+ * Batch sizes and time spent queueing are recorded so the window can be tuned
+ * for throughput against tail latency.
+ */
+public class BatchingPredictor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(BatchingPredictor.class);
+
+    private final Callable<InferenceEngine> engines;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService forwardPasses;
+    private final int parallelBatches;
+    private final Thread dispatcher;
+    private final AtomicLongArray batchSizeCounts;
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private volatile boolean closed;
+
+    /** A queued single-image request. */
+    private record Request(INDArray input, CompletableFuture<Prediction> result, long enqueuedNanos) {
+    }
+
+    /**
+     * @param engines      Supplies the engine to run each batch on (e.g. {@code TrainCNN::getEngine}),
+     *                     so a newly trained model is picked up without restarting the predictor
+     * @param maxBatchSize Largest batch to form
+     * @param maxWaitMicros How long the first request of a batch may wait for others
+     * @param parallelBatches Number of batches that may run forward passes at the same time
+     */
+    public BatchingPredictor(@NotNull Callable<InferenceEngine> engines, int maxBatchSize, long maxWaitMicros, int parallelBatches) {
+        if (maxBatchSize <= 0 || maxWaitMicros < 0 || parallelBatches <= 0) {
+            throw new IllegalArgumentException("maxBatchSize and parallelBatches must be positive, maxWaitMicros non-negative");
+        }
+        this.engines = engines;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.batchSizeCounts = new AtomicLongArray(maxBatchSize + 1);
+        this.parallelBatches = parallelBatches;
+        this.forwardPasses = Executors.newFixedThreadPool(parallelBatches, r -> {
+            Thread t = new Thread(r, "batch-predictor-forward");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "batch-predictor-dispatch");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues one image for prediction.
+     * @param input Normalized image, shape [1, 1, 28, 28]
+     * @return Completes with the prediction, or exceptionally if the forward pass fails
+     */
+    @NotNull
+    public CompletableFuture<Prediction> submit(@NotNull INDArray input) {
+        CompletableFuture<Prediction> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new RejectedExecutionException("Predictor is closed"));
+            return result;
+        }
+        Request request = new Request(input, result, System.nanoTime());
+        queue.add(request);
+        // close() may have drained the queue between the check above and the add; if the request is
+        // still queued, nobody else will complete it. If it is gone, close() or the dispatcher has it.
+        if (closed && queue.remove(request)) {
+            result.completeExceptionally(new RejectedExecutionException("Predictor is closed"));
+        }
+        return result;
+    }
+
+    /**
+     * Runs an already batched input on a forward-pass thread, without waiting for a batching window.
+     * @param input Normalized images, shape [N, 1, 28, 28]
+     * @return Completes with one prediction per image, or exceptionally if the forward pass fails
+     */
+    @NotNull
+    public CompletableFuture<List<Prediction>> submitBatch(@NotNull INDArray input) {
+        CompletableFuture<List<Prediction>> result = new CompletableFuture<>();
+        try {
+            forwardPasses.execute(() -> {
+                try {
+                    INDArray output = engines.call().output(input);
+                    List<Prediction> predictions = new ArrayList<>(output.rows());
+                    for (int i = 0; i < output.rows(); i++) {
+                        predictions.add(Prediction.fromProbabilities(output.getRow(i).toFloatVector()));
+                    }
+                    result.complete(predictions);
+                } catch (Exception e) {
+                    log.warn("Prediction of a batch of {} image(s) failed: {}", input.size(0), e.getMessage());
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new RejectedExecutionException("Predictor is closed", e));
+        }
+        return result;
+    }
+
+    /**
+     * Runs {@link InferenceEngine#warmUp} on every forward-pass thread. ND4J's
+     * workspaces are per thread, so a warm-up on any other thread leaves these cold.
+     * @param passesPerReplica Passes of each size per replica, on each thread
+     * @throws InterruptedException If interrupted while waiting for the warm-up
+     * @throws ExecutionException   If a warm-up pass failed
+     */
+    public void warmUp(int passesPerReplica) throws InterruptedException, ExecutionException {
+        // Each task waits until all have started, so every thread of the pool runs exactly one
+        CyclicBarrier allStarted = new CyclicBarrier(parallelBatches);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < parallelBatches; i++) {
+            tasks.add(forwardPasses.submit(() -> {
+                allStarted.await();
+                engines.call().warmUp(passesPerReplica);
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+    }
+
+    private void dispatchLoop() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                Request first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedNanos() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Take whatever is already waiting without blocking, then wait out the window
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                List<Request> ready = List.copyOf(batch);
+                batch.clear();
+                try {
+                    forwardPasses.execute(() -> runBatch(ready));
+                } catch (RejectedExecutionException e) {
+                    fail(ready, e); // Closed while the batch was being collected
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        fail(batch, new RejectedExecutionException("Predictor is closed"));
+    }
+
+    private void runBatch(List<Request> batch) {
+        long start = System.nanoTime();
+        for (Request r : batch) {
+            queueLatency.record(start - r.enqueuedNanos());
+        }
+        batchSizeCounts.incrementAndGet(batch.size());
+        try {
+            INDArray[] inputs = new INDArray[batch.size()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = batch.get(i).input();
+            }
+            INDArray features = inputs.length == 1 ? inputs[0] : Nd4j.concat(0, inputs);
+            INDArray output = engines.call().output(features);
+            for (int i = 0; i < inputs.length; i++) {
+                batch.get(i).result().complete(Prediction.fromProbabilities(output.getRow(i).toFloatVector()));
+            }
+        } catch (Exception e) {
+            log.warn("Batched prediction of {} image(s) failed: {}", batch.size(), e.getMessage());
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<Request> batch, Throwable cause) {
+        for (Request r : batch) {
+            r.result().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * @return Number of batches of each size; index {@code n} holds the count of batches with {@code n} images
+     */
+    @NotNull
+    public long[] getBatchSizeHistogram() {
+        long[] copy = new long[batchSizeCounts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = batchSizeCounts.get(i);
+        }
+        return copy;
+    }
+
+    /** @return Time requests spent queued before their batch started */
+    @NotNull
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /** @return Number of requests waiting for a batch */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** @return A one-line summary of batch sizes and queueing latency */
+    @NotNull
+    public String summary() {
+        long[] sizes = getBatchSizeHistogram();
+        long batches = 0, images = 0;
+        StringBuilder hist = new StringBuilder();
+        for (int n = 1; n < sizes.length; n++) {
+            batches += sizes[n];
+            images += n * sizes[n];
+            if (sizes[n] > 0) {
+                hist.append(hist.isEmpty() ? "" : " ").append(n).append(':').append(sizes[n]);
+            }
+        }
+        return String.format("batches=%d mean size=%.1f sizes={%s} queueing %s",
+                batches, batches == 0 ? 0.0 : (double) images / batches, hist, queueLatency.summary());
+    }
+
+    /**
+     * Stops accepting requests; queued requests that have not started fail with
+     * {@link RejectedExecutionException}, running batches finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        List<Request> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        fail(leftover, new RejectedExecutionException("Predictor is closed"));
+        forwardPasses.shutdown();
+    }
+}
@@ -0,0 +1,223 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * CachedMnistDataSetIterator
+ * A {@link DataSetIterator} over a memory-mapped {@link MnistBinaryCache}.
+ * Produces the same [batch, 1, 28, 28] features (raw 0..255 values) and
+ * one-hot labels as the PNG-based {@code RecordReaderDataSetIterator}, without
+ * any image decoding.
+ *
+ * Examples are visited in a shuffled order that depends only on the seed and
+ * the epoch number, so every run with the same seed sees the same batches.
+ * An optional {@link MnistAugmenter} distorts each example as it is loaded,
+ * also seeded by epoch, so prefetch workers augment in parallel.
+ */
+public class CachedMnistDataSetIterator implements DataSetIterator {
+    private final MnistBinaryCache cache;
+    private final int batchSize;
+    private final long seed;
+    private final int[] examples; // Example indices this iterator covers (all, or a shard)
+    private final int[] order;    // Current epoch's permutation of 'examples'
+    private final byte[] scratch = new byte[MnistBinaryCache.PIXELS];
+    private int epoch;
+    private int cursor;
+    private DataSetPreProcessor preProcessor;
+    private volatile MnistAugmenter augmenter;
+
+    /**
+     * Iterates over every example in the cache.
+     */
+    public CachedMnistDataSetIterator(@NotNull MnistBinaryCache cache, int batchSize, long seed) {
+        this(cache, batchSize, seed, IntStream.range(0, cache.size()).toArray());
+    }
+
+    /**
+     * Iterates over a subset of the examples in the cache.
+     * @param examples Example indices to visit; the array is not modified
+     */
+    public CachedMnistDataSetIterator(@NotNull MnistBinaryCache cache, int batchSize, long seed, @NotNull int[] examples) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.cache = cache;
+        this.batchSize = batchSize;
+        this.seed = seed;
+        this.examples = examples.clone();
+        this.order = new int[examples.length];
+        shuffle();
+    }
+
+    /** Rebuilds {@link #order} as a seeded Fisher-Yates shuffle of {@link #examples} for the current epoch. */
+    private void shuffle() {
+        System.arraycopy(examples, 0, order, 0, examples.length);
+        Random rng = new Random(seed + epoch);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        cursor = 0;
+    }
+
+    /** @return Number of examples this iterator visits per epoch */
+    public int numExamples() {
+        return order.length;
+    }
+
+    /** @return Number of minibatches in one epoch */
+    public int numBatches() {
+        return (order.length + batchSize - 1) / batchSize;
+    }
+
+    /**
+     * Loads minibatch {@code index} of the current epoch without touching the
+     * cursor or applying the pre-processor. Safe to call from several threads
+     * at once, as long as nobody resets the iterator in the meantime.
+     * @param scratch Per-thread buffer of at least {@link MnistBinaryCache#PIXELS} bytes
+     */
+    @NotNull
+    public DataSet loadBatch(int index, @NotNull byte[] scratch) {
+        int start = index * batchSize;
+        return load(start, Math.min(batchSize, order.length - start), scratch);
+    }
+
+    /**
+     * Builds the features and labels for {@code count} examples of the current
+     * epoch's order, starting at position {@code start}. Does not apply the pre-processor.
+     */
+    @NotNull
+    protected DataSet load(int start, int count, @NotNull byte[] scratch) {
+        int classes = cache.numClasses();
+        float[] features = new float[count * MnistBinaryCache.PIXELS];
+        float[] labels = new float[count * classes];
+        for (int i = 0; i < count; i++) {
+            int example = order[start + i];
+            cache.copyPixels(example, scratch, features, i * MnistBinaryCache.PIXELS);
+            MnistAugmenter a = augmenter;
+            if (a != null) {
+                a.augment(features, i * MnistBinaryCache.PIXELS, seed, epoch, example);
+            }
+            labels[i * classes + cache.label(example)] = 1.0f;
+        }
+        INDArray f = Nd4j.create(features, new long[]{count, 1, MnistBinaryCache.ROWS, MnistBinaryCache.COLS}, 'c');
+        INDArray l = Nd4j.create(labels, new long[]{count, classes}, 'c');
+        return new DataSet(f, l);
+    }
+
+    @Override
+    public DataSet next(int num) {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Epoch exhausted; call reset()");
+        }
+        int count = Math.min(num, order.length - cursor);
+        DataSet ds = load(cursor, count, scratch);
+        cursor += count;
+        if (preProcessor != null) {
+            preProcessor.preProcess(ds);
+        }
+        return ds;
+    }
+
+    @Override
+    public DataSet next() {
+        return next(batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < order.length;
+    }
+
+    /**
+     * Jumps to a position, e.g. when resuming from a checkpoint: switches to
+     * {@code epoch}'s shuffle and skips the first {@code batch} minibatches.
+     * @param epoch Epoch number (0 = the order used before any reset)
+     * @param batch Minibatches to skip
+     */
+    public void seek(int epoch, int batch) {
+        this.epoch = epoch;
+        shuffle();
+        cursor = (int) Math.min((long) batch * batchSize, order.length);
+    }
+
+    /**
+     * Starts the next epoch with a fresh (seeded) shuffle.
+     */
+    @Override
+    public void reset() {
+        epoch++;
+        shuffle();
+    }
+
+    @Override
+    public int inputColumns() {
+        return MnistBinaryCache.PIXELS;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return cache.numClasses();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public int batch() {
+        return batchSize;
+    }
+
+    /**
+     * @param augmenter Distortion applied to every loaded example before the pre-processor (null = none);
+     *                  only for training data, never for evaluation
+     */
+    public void setAugmenter(@Nullable MnistAugmenter augmenter) {
+        this.augmenter = augmenter;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < cache.numClasses(); i++) {
+            labels.add(String.valueOf(i));
+        }
+        return labels;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
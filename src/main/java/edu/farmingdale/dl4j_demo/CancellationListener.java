@@ -0,0 +1,43 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * CancellationListener
+ * Stops {@code fit()} cooperatively: after every iteration it polls a cancel
+ * flag and, once it is set, throws a {@link CancellationException} out of the
+ * training loop. The parameters are consistent at that point (the update has
+ * been applied), and everything after the last checkpoint is discarded.
+ */
+public class CancellationListener extends BaseTrainingListener {
+    private final BooleanSupplier cancelRequested;
+
+    /**
+     * @param cancelRequested Polled on the training thread after every iteration
+     */
+    public CancellationListener(@NotNull BooleanSupplier cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    @Override
+    public void iterationDone(Model model, int iteration, int epoch) {
+        if (cancelRequested.getAsBoolean()) {
+            throw new CancellationException(String.format("Training cancelled at iteration %d (epoch %d)", iteration, epoch + 1));
+        }
+    }
+
+    /**
+     * Throws if cancellation has been requested, e.g. between epochs.
+     * @throws CancellationException If {@code cancelRequested} returns true
+     */
+    public static void check(@NotNull BooleanSupplier cancelRequested) {
+        if (cancelRequested.getAsBoolean()) {
+            throw new CancellationException("Training cancelled");
+        }
+    }
+}
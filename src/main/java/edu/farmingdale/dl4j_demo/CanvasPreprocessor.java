@@ -0,0 +1,174 @@
+package edu.farmingdale.dl4j_demo;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * CanvasPreprocessor
+ * Turns a canvas snapshot (dark strokes on a light background, any size) into
+ * the network's normalized [1, 1, 28, 28] input in a single pass.
+ *
+ * Pixels are read straight from the image's {@link PixelReader} into a reusable
+ * per-thread buffer, then each 28x28 cell is the area average of the source
+ * pixels it covers. Grayscale conversion, inversion (MNIST digits are light on
+ * dark) and scaling to [0, 1] are fused into that averaging loop, and the
+ * result is written into a preallocated per-thread input array. After the
+ * first call on a thread, no objects are allocated.
+ */
+public class CanvasPreprocessor {
+    public static final int SIZE = 28;
+
+    /** Per-thread scratch space, grown on demand for larger snapshots. */
+    private static final class Buffers {
+        int[] argb = new int[0];
+        final float[] pixels = new float[SIZE * SIZE];
+        final INDArray input = Nd4j.create(DataType.FLOAT, 1, 1, SIZE, SIZE);
+    }
+
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+    private final float scale;
+    private final float offset;
+
+    /**
+     * Uses the training-time scaling: ink 0..255 maps to 0..1.
+     */
+    public CanvasPreprocessor() {
+        this(1.0f / 255.0f, 0.0f);
+    }
+
+    /**
+     * @param scale  Multiplier applied to the 0..255 ink value
+     * @param offset Added after scaling
+     */
+    public CanvasPreprocessor(float scale, float offset) {
+        this.scale = scale;
+        this.offset = offset;
+    }
+
+    /**
+     * Builds a preprocessor that applies exactly the given normalizer's transform.
+     * The normalizer is probed once with all-0 and all-255 images to recover its
+     * per-pixel scale and offset, which are then fused into the downsampling pass.
+     * @param normalizer Normalizer used during training
+     * @return The fused preprocessor
+     * @throws IllegalArgumentException If the normalizer is not the same affine map for every pixel
+     */
+    @NotNull
+    public static CanvasPreprocessor forNormalizer(@NotNull DataNormalization normalizer) {
+        INDArray probe = Nd4j.create(DataType.FLOAT, 2, 1, SIZE, SIZE);
+        probe.slice(1).assign(255);
+        normalizer.transform(probe);
+        float[] values = probe.data().asFloat();
+        int pixels = SIZE * SIZE;
+        float offset = values[0];
+        float scale = (values[pixels] - offset) / 255.0f;
+        for (int i = 1; i < pixels; i++) {
+            if (Math.abs(values[i] - offset) > 1e-6f || Math.abs((values[pixels + i] - values[i]) / 255.0f - scale) > 1e-6f) {
+                throw new IllegalArgumentException("Normalizer " + normalizer.getClass().getSimpleName()
+                        + " does not scale every pixel the same way");
+            }
+        }
+        return new CanvasPreprocessor(scale, offset);
+    }
+
+    /** @return Multiplier applied to the 0..255 ink value */
+    public float getScale() {
+        return scale;
+    }
+
+    /** @return Added after scaling */
+    public float getOffset() {
+        return offset;
+    }
+
+    /**
+     * Converts an image into this thread's reusable input array.
+     * The returned array is overwritten by the next call on the same thread,
+     * so it must be consumed (e.g. by a synchronous {@code output()} call) before then.
+     * @param image Snapshot to convert
+     * @return Normalized input, shape [1, 1, 28, 28]
+     */
+    @NotNull
+    public INDArray toInput(@NotNull Image image) {
+        Buffers b = buffers.get();
+        toPixels(image, b.pixels, 0);
+        b.input.data().setData(b.pixels);
+        return b.input;
+    }
+
+    /**
+     * Converts a 28x28 ink grid (e.g. from a {@link StrokeRasterizer}) into this
+     * thread's reusable input array, with the same caveat as {@link #toInput(Image)}.
+     * @param ink Ink amount 0..255 per cell, row-major, {@code SIZE * SIZE} values
+     * @return Normalized input, shape [1, 1, 28, 28]
+     */
+    @NotNull
+    public INDArray toInput(@NotNull float[] ink) {
+        if (ink.length != SIZE * SIZE) {
+            throw new IllegalArgumentException("Expected " + SIZE * SIZE + " ink values, got " + ink.length);
+        }
+        Buffers b = buffers.get();
+        for (int i = 0; i < ink.length; i++) {
+            b.pixels[i] = ink[i] * scale + offset;
+        }
+        b.input.data().setData(b.pixels);
+        return b.input;
+    }
+
+    /**
+     * Converts an image into normalized pixels, row-major, written to
+     * {@code dest[destOffset .. destOffset + 784)}.
+     * @param image      Snapshot to convert
+     * @param dest       Destination array
+     * @param destOffset Start index in {@code dest}
+     */
+    public void toPixels(@NotNull Image image, @NotNull float[] dest, int destOffset) {
+        PixelReader reader = image.getPixelReader();
+        if (reader == null) {
+            throw new IllegalArgumentException("Image pixels are not readable (still loading?)");
+        }
+        int w = (int) image.getWidth(), h = (int) image.getHeight();
+        if (w < SIZE || h < SIZE) {
+            throw new IllegalArgumentException("Image must be at least " + SIZE + "x" + SIZE + ": " + w + "x" + h);
+        }
+        Buffers b = buffers.get();
+        if (b.argb.length < w * h) {
+            b.argb = new int[w * h];
+        }
+        int[] argb = b.argb;
+        reader.getPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), argb, 0, w);
+
+        for (int cy = 0; cy < SIZE; cy++) {
+            int y0 = cy * h / SIZE, y1 = (cy + 1) * h / SIZE;
+            for (int cx = 0; cx < SIZE; cx++) {
+                int x0 = cx * w / SIZE, x1 = (cx + 1) * w / SIZE;
+                int ink = 0;
+                for (int y = y0; y < y1; y++) {
+                    int row = y * w;
+                    for (int x = x0; x < x1; x++) {
+                        ink += ink(argb[row + x]);
+                    }
+                }
+                int area = (y1 - y0) * (x1 - x0);
+                dest[destOffset + cy * SIZE + cx] = ink * scale / area + offset;
+            }
+        }
+    }
+
+    /**
+     * Ink amount 0..255 of one ARGB pixel: 255 minus its luma after compositing
+     * over white, so transparent and white pixels are 0 and opaque black is 255.
+     */
+    private static int ink(int argb) {
+        int a = argb >>> 24;
+        int r = (argb >> 16) & 0xFF, g = (argb >> 8) & 0xFF, bl = argb & 0xFF;
+        int luma = (r * 299 + g * 587 + bl * 114) / 1000;
+        return (255 - luma) * a / 255;
+    }
+}
@@ -0,0 +1,377 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.deeplearning4j.util.ModelSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * CheckpointManager
+ * Periodic, asynchronous training checkpoints and the final model save.
+ *
+ * A checkpoint is taken on the training thread by duplicating the parameters
+ * and updater state (a memory copy), then serialized on a background writer
+ * thread while {@code fit} carries on. Files are written under a temporary
+ * name and atomically renamed, and only the newest
+ * {@link TrainingConfig#getCheckpointRetention()} are kept. If a checkpoint
+ * is still being written when a mid-epoch one is due, the mid-epoch one is
+ * skipped rather than making training wait; epoch-boundary checkpoints are
+ * never skipped, they queue behind the write in progress.
+ *
+ * Positions are always normalized, so a checkpoint taken after the last
+ * minibatch of an epoch is recorded as the start of the next one.
+ *
+ * Each checkpoint is a normal model zip (with updater state and normalizer)
+ * plus a {@link State} recording where in the data the run was, so
+ * {@link #latest()} can resume training exactly where it stopped. A checkpoint
+ * is only resumed by a run with the same network configuration and the same
+ * data settings, since a position means nothing over a different batch order.
+ */
+public class CheckpointManager implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CheckpointManager.class);
+    static final String CHECKPOINT_PATH = "checkpoints";
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".zip";
+    static final String STATE_KEY = "trainingState";
+
+    /**
+     * Where a checkpoint was taken.
+     * @param epoch        Epoch in progress (0-based)
+     * @param batch        Minibatches of that epoch already trained
+     * @param architecture Network configuration the run was started with; a checkpoint only resumes the same setup
+     * @param dataSetup    Settings that decide the minibatch sequence (see {@link #dataSetup}); a position only
+     *                     means the same thing under the same settings
+     */
+    public record State(int epoch, int batch, String architecture, String dataSetup) implements Serializable {}
+
+    /** A restored checkpoint: the network with its updater state, and its position. */
+    public record Checkpoint(File file, MultiLayerNetwork network, State state) {}
+
+    private final File dir;
+    private final int everyEpochs;
+    private final long everyNanos;
+    private final int retention;
+    private final String architecture;
+    private final String dataSetup;
+    private final DataNormalization normalizer;
+    private final Consumer<String> logConsumer;
+    private final ExecutorService writer;
+    private final int batchesPerEpoch;
+    private final AtomicInteger queuedWrites = new AtomicInteger();
+    private MultiLayerNetwork shadow; // Writer thread only: receives the copied state and is serialized
+    private long lastCheckpoint = System.nanoTime();
+    private State lastQueued; // Position of the newest checkpoint handed to the writer
+    private int epoch;
+    private int batch;
+
+    /**
+     * @param config          Checkpoint interval and retention
+     * @param normalizer      Normalizer stored with every checkpoint and the final model
+     * @param batchesPerEpoch Minibatches in one epoch, to normalize positions at the end of an epoch
+     * @param logConsumer     Receives one line per checkpoint
+     */
+    public CheckpointManager(@NotNull TrainingConfig config, @NotNull DataNormalization normalizer,
+                             int batchesPerEpoch, @NotNull Consumer<String> logConsumer) {
+        this(config, normalizer, batchesPerEpoch, logConsumer, new File(CHECKPOINT_PATH));
+    }
+
+    /**
+     * @param dir Directory holding the checkpoints instead of {@value #CHECKPOINT_PATH}
+     */
+    CheckpointManager(@NotNull TrainingConfig config, @NotNull DataNormalization normalizer,
+                      int batchesPerEpoch, @NotNull Consumer<String> logConsumer, @NotNull File dir) {
+        if (batchesPerEpoch <= 0) {
+            throw new IllegalArgumentException("Batches per epoch must be positive: " + batchesPerEpoch);
+        }
+        this.dir = dir;
+        this.everyEpochs = config.getCheckpointEveryEpochs();
+        this.everyNanos = TimeUnit.MINUTES.toNanos(config.getCheckpointEveryMinutes());
+        this.retention = config.getCheckpointRetention();
+        this.architecture = TrainCNN.buildConfiguration(config).toJson();
+        this.dataSetup = dataSetup(config);
+        this.normalizer = normalizer;
+        this.batchesPerEpoch = batchesPerEpoch;
+        this.logConsumer = logConsumer;
+        // Not a daemon: queued writes (in particular the final model) finish even if the JVM is exiting
+        this.writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "checkpoint-writer"));
+    }
+
+    /**
+     * Finds the newest readable checkpoint taken with the same network configuration and data settings.
+     * @return The checkpoint, or null if there is none to resume from
+     */
+    @Nullable
+    public Checkpoint latest() {
+        File[] files = checkpointFiles();
+        for (int i = files.length - 1; i >= 0; i--) {
+            try {
+                State state = ModelSerializer.getObjectFromFile(files[i], STATE_KEY);
+                if (!architecture.equals(state.architecture())) {
+                    log.info("Ignoring checkpoint {}: it was taken with a different configuration", files[i].getName());
+                    return null;
+                }
+                // Checkpoints from before the data settings were recorded have none, so they never match
+                if (!dataSetup.equals(state.dataSetup())) {
+                    log.info("Ignoring checkpoint {}: it was taken with different data settings ({}, now {})",
+                            files[i].getName(), state.dataSetup(), dataSetup);
+                    return null;
+                }
+                // Older checkpoints may record the end of an epoch as (epoch, batchesPerEpoch)
+                return new Checkpoint(files[i], ModelSerializer.restoreMultiLayerNetwork(files[i], true),
+                        position(state.epoch(), state.batch()));
+            } catch (Exception e) {
+                log.warn("Skipping unreadable checkpoint {}: {}", files[i].getName(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /** Deletes every checkpoint, e.g. when a run starts from scratch instead of resuming. */
+    public void clear() throws IOException {
+        for (File f : checkpointFiles()) {
+            Files.deleteIfExists(f.toPath());
+        }
+    }
+
+    /**
+     * Records that an epoch is starting, for positions and epoch-based checkpoints.
+     * @param epoch      Epoch index (0-based)
+     * @param firstBatch Minibatches of it already trained (non-zero when resuming mid-epoch)
+     */
+    public void beginEpoch(int epoch, int firstBatch) {
+        this.epoch = epoch;
+        this.batch = firstBatch;
+    }
+
+    /**
+     * A listener that counts trained minibatches and takes a checkpoint when the
+     * time interval elapses mid-epoch. Register it on the network that is being
+     * fitted directly (not on data-parallel replicas).
+     */
+    @NotNull
+    public TrainingListener timeTrigger() {
+        return new BaseTrainingListener() {
+            @Override
+            public void iterationDone(Model model, int iteration, int ep) {
+                batch++;
+                if (everyNanos > 0 && System.nanoTime() - lastCheckpoint >= everyNanos) {
+                    save((MultiLayerNetwork) model, position(epoch, batch), false);
+                }
+            }
+        };
+    }
+
+    /**
+     * Called after an epoch completes; takes a checkpoint when the epoch or time interval is due.
+     * @param model The network being trained
+     */
+    public void endEpoch(@NotNull MultiLayerNetwork model) {
+        boolean epochDue = everyEpochs > 0 && (epoch + 1) % everyEpochs == 0;
+        boolean timeDue = everyNanos > 0 && System.nanoTime() - lastCheckpoint >= everyNanos;
+        State state = position(epoch + 1, 0);
+        // A time checkpoint after the last minibatch already recorded this position
+        if ((epochDue || timeDue) && !state.equals(lastQueued)) {
+            save(model, state, true);
+        }
+    }
+
+    /** @return The position, with the end of an epoch expressed as the start of the next */
+    private State position(int epoch, int batch) {
+        if (batch >= batchesPerEpoch) {
+            return new State(epoch + batch / batchesPerEpoch, batch % batchesPerEpoch, architecture, dataSetup);
+        }
+        return new State(epoch, batch, architecture, dataSetup);
+    }
+
+    /**
+     * Every setting that changes which examples form the minibatches, in which
+     * order, or how many there are per epoch: the seed (shuffle, hold-out split
+     * and augmentation draws), batch size, validation hold-out, data-parallel
+     * sharding and averaging, and augmentation. Prefetching is left out because
+     * it hands out exactly the same sequence as loading on the training thread.
+     */
+    static String dataSetup(@NotNull TrainingConfig config) {
+        // Settings that have no effect in this run are left out, so changing them does not block a resume
+        String parallel = config.getDataParallelWorkers() > 1
+                ? config.getDataParallelWorkers() + " workers averaging every " + config.getAveragingFrequency()
+                : "off";
+        String augment = config.getAugmentProbability() > 0
+                ? String.format(Locale.ROOT, "p=%s shift=%s rotation=%s scale=%s thickness=%s",
+                        config.getAugmentProbability(), config.getAugmentMaxShift(), config.getAugmentMaxRotation(),
+                        config.getAugmentMaxScale(), config.getAugmentThicknessProbability())
+                : "off";
+        return String.format(Locale.ROOT, "seed=%d, batchSize=%d, validationSize=%d, dataParallel=%s, augment=%s",
+                config.getSeed(), config.getBatchSize(), config.getValidationSize(), parallel, augment);
+    }
+
+    /**
+     * Copies the model's state and queues it for writing. Must be called on the training thread between steps.
+     * @param always False to skip the checkpoint if another one is still being written
+     */
+    private void save(MultiLayerNetwork model, State state, boolean always) {
+        lastCheckpoint = System.nanoTime();
+        if (!always && queuedWrites.get() > 0) {
+            log.info("Previous checkpoint still being written; skipping epoch {} batch {}", state.epoch(), state.batch());
+            return;
+        }
+        queuedWrites.incrementAndGet();
+        lastQueued = state;
+        Copy copy = Copy.of(model);
+        String name = String.format("%s%04d-%06d%s", PREFIX, state.epoch(), state.batch(), SUFFIX);
+        writer.execute(() -> {
+            try {
+                File target = new File(dir, name);
+                write(copy, target, state);
+                prune();
+                logConsumer.accept(String.format("Checkpoint saved: %s (%d epoch(s) + %d minibatch(es) trained)",
+                        target.getName(), state.epoch(), state.batch()));
+            } catch (Exception e) {
+                log.warn("Could not write checkpoint {}: {}", name, e.getMessage(), e);
+                logConsumer.accept("Warning: checkpoint " + name + " could not be written: " + e);
+            } finally {
+                queuedWrites.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Queues the trained model to be written as the final model zip and inference
+     * snapshot, after which the run's checkpoints are deleted. Returns immediately;
+     * {@link #close()} waits for the write.
+     * @param model        The trained network; only its state at the time of this call is written
+     * @param modelFile    Destination of the model zip
+     * @param snapshotFile Destination of the inference snapshot
+     */
+    public void saveFinal(@NotNull MultiLayerNetwork model, @NotNull File modelFile, @NotNull File snapshotFile) {
+        Copy copy = Copy.of(model);
+        writer.execute(() -> {
+            try {
+                write(copy, modelFile, null);
+                ModelSnapshot.write(shadow, normalizer, snapshotFile);
+                logConsumer.accept("Model saved to " + modelFile.getAbsolutePath());
+                log.info("Model saved to " + modelFile.getAbsolutePath());
+                clear(); // The run is complete, so there is nothing left to resume
+            } catch (Exception e) {
+                log.error("Could not save the trained model to {}: {}", modelFile.getAbsolutePath(), e.getMessage(), e);
+                logConsumer.accept("Error: the trained model could not be saved: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Writer thread: loads a copy into the shadow network and serializes it with an atomic rename. */
+    private void write(Copy copy, File target, @Nullable State state) throws IOException {
+        if (shadow == null) {
+            shadow = new MultiLayerNetwork(copy.conf);
+            shadow.init();
+        }
+        shadow.setParams(copy.params);
+        INDArray view = shadow.getUpdater().getStateViewArray();
+        if (view != null && copy.updaterState != null) {
+            view.assign(copy.updaterState);
+        }
+        shadow.getLayerWiseConfigurations().setIterationCount(copy.iterationCount);
+        shadow.getLayerWiseConfigurations().setEpochCount(copy.epochCount);
+
+        writeModelFile(shadow, normalizer, state, target);
+    }
+
+    /**
+     * Writes a model zip with its updater state, the normalizer and, for a
+     * checkpoint, its {@link State}, under a temporary sibling name that is
+     * atomically renamed into place.
+     * @param state Position to record, or null for a final model
+     * @throws IOException If the file cannot be written
+     */
+    static void writeModelFile(@NotNull MultiLayerNetwork model, @NotNull DataNormalization normalizer,
+                               @Nullable State state, @NotNull File target) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(target.getName() + ".tmp"); // Callers never write the same target concurrently
+        try {
+            // writeModel(..., normalizer) lets the normalizer serializer close the zip early and then fails on
+            // close, so the normalizer is added as a second step
+            ModelSerializer.writeModel(model, tmp.toFile(), true);
+            ModelSerializer.addNormalizerToModel(tmp.toFile(), normalizer);
+            if (state != null) {
+                ModelSerializer.addObjectToFile(tmp.toFile(), STATE_KEY, state);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /** Deletes the oldest checkpoints beyond the retention limit. */
+    private void prune() throws IOException {
+        File[] files = checkpointFiles();
+        for (int i = 0; i < files.length - retention; i++) {
+            Files.deleteIfExists(files[i].toPath());
+        }
+    }
+
+    /** @return Checkpoint files, oldest first (names sort by epoch, then batch) */
+    private File[] checkpointFiles() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Waits for every queued write (including the final model and the checkpoint
+     * cleanup after it) to finish, then stops the writer thread. Once this returns,
+     * a later run sees this run's files in their final state and none of them
+     * changes underneath it. Waiting is not cut short by an interrupt, since a
+     * pending write takes seconds at most; the interrupt status is restored afterwards.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        boolean interrupted = false;
+        while (!writer.isTerminated()) {
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** The part of a network's state a checkpoint needs, copied on the training thread. */
+    private record Copy(MultiLayerConfiguration conf, INDArray params, INDArray updaterState,
+                        int iterationCount, int epochCount) {
+        static Copy of(MultiLayerNetwork model) {
+            INDArray state = model.getUpdater().getStateViewArray();
+            return new Copy(model.getLayerWiseConfigurations().clone(), model.params().dup(),
+                    state == null ? null : state.dup(), model.getIterationCount(), model.getEpochCount());
+        }
+    }
+}
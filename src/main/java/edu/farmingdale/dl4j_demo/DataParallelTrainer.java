@@ -0,0 +1,237 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * DataParallelTrainer
+ * Trains one network with N worker replicas, each on its own disjoint shard of
+ * the compiled training set. Every {@code averagingFrequency} minibatches the
+ * workers stop, their parameters and updater state are averaged into the master
+ * network, and the average is copied back to every worker.
+ *
+ * With one worker this is plain minibatch training. With more, each worker still
+ * sees minibatches of the configured size, so an epoch takes roughly 1/N as many
+ * sequential steps.
+ *
+ * Only the first worker reports to the master's listeners. The master's
+ * iteration and epoch counts are advanced as it is trained: by the steps of
+ * each averaging round and by one per {@link #fitEpoch()}, so checkpoints and
+ * the saved model record how far training got. Every round starts by copying
+ * those counts into the workers, so listeners see the master's epoch and
+ * iteration, not the reporting replica's own.
+ */
+public class DataParallelTrainer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DataParallelTrainer.class);
+    private static final AtomicInteger POOL_ID = new AtomicInteger();
+
+    private final MultiLayerNetwork master;
+    private final List<MultiLayerNetwork> workers = new ArrayList<>();
+    private final List<CachedMnistDataSetIterator> shards = new ArrayList<>();
+    private final int averagingFrequency;
+    private final ExecutorService pool;
+    private BooleanSupplier cancelRequested = () -> false;
+    private boolean firstEpoch = true;
+
+    /**
+     * Trains on every example in the cache.
+     */
+    public DataParallelTrainer(@NotNull MultiLayerNetwork master, @NotNull MnistBinaryCache cache, int workerCount,
+                               int batchSize, long seed, int averagingFrequency, DataSetPreProcessor preProcessor) {
+        this(master, cache, IntStream.range(0, cache.size()).toArray(), workerCount, batchSize, seed, averagingFrequency, preProcessor);
+    }
+
+    /**
+     * @param master             Initialized network; it holds the averaged parameters after every round
+     * @param cache              Compiled training data
+     * @param examples           Example indices to train on (e.g. all but a validation hold-out); not modified
+     * @param workerCount        Number of replicas training in parallel
+     * @param batchSize          Minibatch size per worker
+     * @param seed               Seed for the shard split and per-shard shuffling
+     * @param averagingFrequency Minibatches each worker fits between parameter averages
+     * @param preProcessor       Normalization applied to every minibatch (may be null)
+     */
+    public DataParallelTrainer(@NotNull MultiLayerNetwork master, @NotNull MnistBinaryCache cache, @NotNull int[] examples,
+                               int workerCount, int batchSize, long seed, int averagingFrequency, DataSetPreProcessor preProcessor) {
+        if (workerCount <= 0 || averagingFrequency <= 0) {
+            throw new IllegalArgumentException("Worker count and averaging frequency must be positive");
+        }
+        this.master = master;
+        this.averagingFrequency = averagingFrequency;
+
+        // Split a seeded permutation of the examples into contiguous, disjoint shards
+        int[] all = examples.clone();
+        Random rng = new Random(seed);
+        for (int i = all.length - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        for (int w = 0; w < workerCount; w++) {
+            int from = (int) ((long) all.length * w / workerCount);
+            int to = (int) ((long) all.length * (w + 1) / workerCount);
+            CachedMnistDataSetIterator shard = new CachedMnistDataSetIterator(cache, batchSize, seed + w, Arrays.copyOfRange(all, from, to));
+            shard.setPreProcessor(preProcessor);
+            shards.add(shard);
+
+            MultiLayerNetwork replica = master.clone();
+            // Only the first replica reports to the master's listeners, so scores are logged once per step
+            replica.setListeners(w == 0 ? master.getListeners() : Collections.emptyList());
+            workers.add(replica);
+        }
+
+        int poolId = POOL_ID.incrementAndGet();
+        AtomicInteger threadId = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "data-parallel-" + poolId + "-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("Data-parallel training with {} worker(s), averaging every {} minibatch(es)", workerCount, averagingFrequency);
+    }
+
+    /**
+     * @param augmenter Distortion applied to the shards' training examples (null = none)
+     * @see CachedMnistDataSetIterator#setAugmenter(MnistAugmenter)
+     */
+    public void setAugmenter(@Nullable MnistAugmenter augmenter) {
+        shards.forEach(shard -> shard.setAugmenter(augmenter));
+    }
+
+    /**
+     * @param cancelRequested Polled by every worker after each minibatch; once it returns true,
+     *                        {@link #fitEpoch()} ends the round early and throws a {@link CancellationException}
+     */
+    public void setCancelRequested(@NotNull BooleanSupplier cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    /** @return Number of worker replicas */
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Makes the next {@link #fitEpoch()} train epoch {@code epoch}'s shuffle of
+     * every shard, e.g. when resuming from a checkpoint.
+     * @param epoch Epoch number (0-based)
+     */
+    public void seekEpoch(int epoch) {
+        shards.forEach(shard -> shard.seek(epoch, 0));
+        firstEpoch = true;
+    }
+
+    /**
+     * Trains one pass over every shard. The master holds the averaged result afterwards.
+     * @throws CancellationException If cancellation was requested; the master holds the last average
+     * @throws InterruptedException If interrupted while waiting for the workers
+     * @throws ExecutionException   If a worker fails
+     */
+    public void fitEpoch() throws InterruptedException, ExecutionException {
+        if (!firstEpoch) {
+            shards.forEach(CachedMnistDataSetIterator::reset);
+        }
+        firstEpoch = false;
+
+        while (shards.stream().anyMatch(CachedMnistDataSetIterator::hasNext)) {
+            CancellationListener.check(cancelRequested);
+            List<Callable<Integer>> round = new ArrayList<>();
+            for (int w = 0; w < workers.size(); w++) {
+                MultiLayerNetwork replica = workers.get(w);
+                CachedMnistDataSetIterator shard = shards.get(w);
+                // A replica never finishes an epoch of its own, so it would report epoch 0 forever
+                replica.setEpochCount(master.getEpochCount());
+                replica.setIterationCount(master.getIterationCount());
+                round.add(() -> {
+                    int fitted = 0;
+                    // Every worker stops at its next step once cancelled, so the round ends within one step
+                    while (fitted < averagingFrequency && shard.hasNext() && !cancelRequested.getAsBoolean()) {
+                        replica.fit(shard.next());
+                        fitted++;
+                    }
+                    return fitted;
+                });
+            }
+            List<MultiLayerNetwork> participants = new ArrayList<>();
+            List<Future<Integer>> results = pool.invokeAll(round);
+            int steps = 0;
+            for (int w = 0; w < results.size(); w++) {
+                int fitted = results.get(w).get();
+                if (fitted > 0) {
+                    participants.add(workers.get(w));
+                }
+                steps = Math.max(steps, fitted);
+            }
+            average(participants);
+            // The average stands for this round's steps, taken in lockstep by the workers
+            master.setIterationCount(master.getIterationCount() + steps);
+        }
+        master.incrementEpochCount();
+    }
+
+    /**
+     * Averages the parameters and updater state of the workers that trained
+     * this round into the master, then copies them to every worker.
+     */
+    private void average(List<MultiLayerNetwork> participants) {
+        if (participants.isEmpty()) {
+            return;
+        }
+        INDArray params = participants.get(0).params().dup();
+        INDArray firstState = stateView(participants.get(0));
+        INDArray updaterState = firstState == null ? null : firstState.dup();
+        for (int i = 1; i < participants.size(); i++) {
+            params.addi(participants.get(i).params());
+            if (updaterState != null) {
+                updaterState.addi(stateView(participants.get(i)));
+            }
+        }
+        params.divi(participants.size());
+        if (updaterState != null) {
+            updaterState.divi(participants.size());
+        }
+
+        copyTo(master, params, updaterState);
+        for (MultiLayerNetwork worker : workers) {
+            copyTo(worker, params, updaterState);
+        }
+    }
+
+    private static void copyTo(MultiLayerNetwork network, INDArray params, INDArray updaterState) {
+        network.setParams(params);
+        INDArray view = stateView(network);
+        if (updaterState != null && view != null) {
+            view.assign(updaterState);
+        }
+    }
+
+    private static INDArray stateView(MultiLayerNetwork network) {
+        return network.getUpdater().getStateViewArray();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
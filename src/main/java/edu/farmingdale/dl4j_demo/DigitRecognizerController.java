@@ -1,19 +1,25 @@
 package edu.farmingdale.dl4j_demo;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.WritableImage;
-import javafx.concurrent.Task; // For background processing
+import javafx.scene.shape.StrokeLineCap;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.FileNotFoundException;
 import java.net.URL;
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 public class DigitRecognizerController implements Initializable {
+    private static final LatencyHistogram PREDICT_RASTERIZE = PerfMetrics.histogram("predict_rasterize",
+            "Stroke rasterization on the FX thread, per drag event");
+    private static final double LINE_WIDTH = 25;
+    private static final long DEBOUNCE_MILLIS = 30; // About two frames: coalesces bursts of drag events
 
     @FXML
     private Canvas canvas;
@@ -29,10 +35,18 @@ public class DigitRecognizerController implements Initializable {
 
     private GraphicsContext gc;
     private double lastX, lastY;
+    private StrokeRasterizer rasterizer; // Mirrors the canvas strokes as a 28x28 ink grid
+    private LivePredictor livePredictor;
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         gc = canvas.getGraphicsContext2D();
+        // Round caps match the capsules the rasterizer draws for each segment
+        gc.setLineWidth(LINE_WIDTH);
+        gc.setLineCap(StrokeLineCap.ROUND);
+        rasterizer = new StrokeRasterizer(canvas.getWidth(), canvas.getHeight());
+        livePredictor = new LivePredictor(TrainCNN::predictInk, DEBOUNCE_MILLIS, Platform::runLater,
+                this::showPrediction, this::showError);
         setupDrawing();
         // You could load the model here in a background task if desired,
         // but TrainCNN.getModel() will load it on first use anyway.
@@ -45,18 +59,36 @@ public class DigitRecognizerController implements Initializable {
         });
 
         canvas.setOnMouseDragged(e -> {
-            gc.setLineWidth(25);  // Set line width for drawing
             gc.strokeLine(lastX, lastY, e.getX(), e.getY());
+
+            // Predict from the strokes while drawing; newer strokes supersede a pending request
+            long rasterizeStart = System.nanoTime();
+            rasterizer.addSegment(lastX, lastY, e.getX(), e.getY(), LINE_WIDTH);
+            float[] ink = rasterizer.copyInk(new float[CanvasPreprocessor.SIZE * CanvasPreprocessor.SIZE]);
+            PREDICT_RASTERIZE.record(System.nanoTime() - rasterizeStart);
+            livePredictor.submit(ink);
+
             lastX = e.getX();
             lastY = e.getY();
         });
     }
 
+    /** Stops the live prediction thread; call when the window closes. */
+    public void shutdown() {
+        if (livePredictor != null) {
+            livePredictor.close();
+        }
+    }
+
     @FXML
     private void handleClear() {
         if (canvas != null && gc != null) {
             gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
         }
+        if (rasterizer != null) {
+            rasterizer.clear();
+            livePredictor.cancel(); // A result for the erased drawing must not show up afterwards
+        }
         if (resultLabel != null) {
             resultLabel.setText("Draw a digit"); // Reset label
         }
@@ -64,51 +96,36 @@ public class DigitRecognizerController implements Initializable {
 
     @FXML
     private void handleRecognize() {
-        if (canvas.getWidth() == 0 || canvas.getHeight() == 0) {
-            resultLabel.setText("Canvas not ready.");
+        if (rasterizer.isEmpty()) {
+            resultLabel.setText("Draw a digit");
             return;
         }
+        // Same path as live prediction, without the debounce delay
+        livePredictor.submitNow(rasterizer.copyInk(new float[CanvasPreprocessor.SIZE * CanvasPreprocessor.SIZE]));
+    }
 
-        // Create a snapshot of the canvas
-        WritableImage writableImage = new WritableImage((int) canvas.getWidth(), (int) canvas.getHeight());
-        canvas.snapshot(null, writableImage);
-
-        // Disable button and update label during processing
-        recognizeBtn.setDisable(true);
-        clearBtn.setDisable(true); // Also disable clear during recognition
-        resultLabel.setText("Recognizing...");
-
-        // Perform prediction in a background task to keep the UI responsive
-        Task<Integer> recognitionTask = new Task<>() {
-            @NotNull
-            @Override
-            protected Integer call() throws Exception {
-                // Call the static predict method from TrainCNN
-                return TrainCNN.predict(writableImage);
-            }
-        };
-
-        recognitionTask.setOnSucceeded(_ -> {
-            updatePrediction(String.valueOf(recognitionTask.getValue()));
-            recognizeBtn.setDisable(false);
-            clearBtn.setDisable(false);
-        });
-
-        recognitionTask.setOnFailed(_ -> {
-            Throwable ex = recognitionTask.getException();
-            ex.printStackTrace(); // Log the full error to the console
-            // Provide a user-friendly error message
-            String errorMessage = "Recognition failed. Ensure the model is trained and available.";
-            if (ex != null && ex.getMessage() != null) {
-                // Include a snippet of the actual error if helpful
-                errorMessage += "\nDetails: " + ex.getMessage().substring(0, Math.min(ex.getMessage().length(), 100)) + "...";
-            }
-            resultLabel.setText(errorMessage);
-            recognizeBtn.setDisable(false);
-            clearBtn.setDisable(false);
-        });
+    /** Shows the three most likely digits with their probabilities. FX thread only. */
+    private void showPrediction(@NotNull Prediction prediction) {
+        StringBuilder text = new StringBuilder("Predicted: ").append(prediction.digit()).append('\n');
+        for (int digit : prediction.top(3)) {
+            text.append(String.format(Locale.ROOT, "%d  %5.1f%%   ", digit, prediction.probabilities()[digit] * 100));
+        }
+        resultLabel.setText(text.toString().stripTrailing());
+    }
 
-        new Thread(recognitionTask).start();
+    /** Shows a prediction failure. FX thread only. */
+    private void showError(@NotNull Throwable ex) {
+        if (ex instanceof FileNotFoundException) {
+            resultLabel.setText("No model yet. Train one, then draw again.");
+            return;
+        }
+        // Provide a user-friendly error message
+        String errorMessage = "Recognition failed. Ensure the model is trained and available.";
+        if (ex.getMessage() != null) {
+            // Include a snippet of the actual error if helpful
+            errorMessage += "\nDetails: " + ex.getMessage().substring(0, Math.min(ex.getMessage().length(), 100)) + "...";
+        }
+        resultLabel.setText(errorMessage);
     }
 
     // Method to update the prediction result on the label
@@ -117,4 +134,4 @@ public class DigitRecognizerController implements Initializable {
             resultLabel.setText("Predicted: " + prediction);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EarlyStopping
+ * Decides after every epoch whether training should continue, and remembers
+ * the parameters of the best epoch so far.
+ *
+ * Training stops when the validation score has not improved by more than
+ * {@link TrainingConfig#getEarlyStoppingMinDelta()} for
+ * {@link TrainingConfig#getEarlyStoppingPatience()} epochs, or when
+ * {@link TrainingConfig#getMaxTrainingMinutes()} have elapsed. Higher scores
+ * are better (accuracy). With a patience set, the best parameters are kept as
+ * a copy, so {@link #restoreBest(MultiLayerNetwork)} can put them back once
+ * training ends; with early stopping off (patience 0) the last epoch's model
+ * is always kept.
+ *
+ * The state lives only in memory: a run resumed from a checkpoint starts
+ * tracking again from the resumed model.
+ */
+public class EarlyStopping {
+    private final int patience;
+    private final double minDelta;
+    private final long maxNanos;
+    private final long start = System.nanoTime();
+
+    private double bestScore = Double.NEGATIVE_INFINITY;
+    private int bestEpoch = -1;
+    private INDArray bestParams;
+    private int epochsWithoutImprovement;
+    private String reason;
+
+    /**
+     * @param config Patience, minimum improvement and time limit
+     */
+    public EarlyStopping(@NotNull TrainingConfig config) {
+        this.patience = config.getEarlyStoppingPatience();
+        this.minDelta = config.getEarlyStoppingMinDelta();
+        this.maxNanos = TimeUnit.MINUTES.toNanos(config.getMaxTrainingMinutes());
+    }
+
+    /**
+     * Records the score of a finished epoch.
+     * @param epoch Epoch index (0-based)
+     * @param score Validation score of the model after that epoch; higher is better
+     * @param model The network being trained; its parameters are copied if this is the best epoch
+     * @return Whether training should stop now
+     */
+    public boolean epochDone(int epoch, double score, @NotNull MultiLayerNetwork model) {
+        if (score > bestScore + minDelta || bestEpoch < 0) {
+            bestScore = score;
+            bestEpoch = epoch;
+            epochsWithoutImprovement = 0;
+            if (patience > 0) { // Without early stopping the last epoch's model is kept, so there is nothing to copy
+                if (bestParams == null) {
+                    bestParams = model.params().dup();
+                } else {
+                    bestParams.assign(model.params()); // Reuse the copy instead of allocating one per improvement
+                }
+            }
+        } else {
+            epochsWithoutImprovement++;
+        }
+
+        if (patience > 0 && epochsWithoutImprovement >= patience) {
+            reason = String.format("no improvement of more than %.4f in %d epoch(s)", minDelta, patience);
+        } else if (maxNanos > 0 && System.nanoTime() - start >= maxNanos) {
+            reason = String.format("time limit of %d minute(s) reached", TimeUnit.NANOSECONDS.toMinutes(maxNanos));
+        }
+        return reason != null;
+    }
+
+    /**
+     * Puts the best epoch's parameters back into the model, if a later epoch scored worse.
+     * @return Whether the parameters were changed
+     */
+    public boolean restoreBest(@NotNull MultiLayerNetwork model) {
+        if (bestParams == null || epochsWithoutImprovement == 0) {
+            return false; // The model already holds the best parameters
+        }
+        model.setParams(bestParams);
+        return true;
+    }
+
+    /** @return Why training should stop, or null if it should continue */
+    @Nullable
+    public String getReason() {
+        return reason;
+    }
+
+    /** @return Best validation score so far */
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    /** @return Epoch (0-based) with the best score, or -1 before the first epoch */
+    public int getBestEpoch() {
+        return bestEpoch;
+    }
+}
@@ -0,0 +1,348 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.bytedeco.javacpp.Pointer;
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.inputs.InputType;
+import org.deeplearning4j.nn.conf.memory.MemoryUseMode;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * HyperparameterSweep
+ * Trains several network configurations side by side and ranks them.
+ *
+ * Trials run concurrently, as many at once as there are cores and as fit in
+ * ND4J's off-heap memory limit (estimated from each network's memory report).
+ * All trials read the same memory-mapped {@link MnistBinaryCache} and score
+ * the same validation minibatches, loaded once; nothing is decoded per trial.
+ *
+ * After every epoch a trial reports its validation accuracy to a median
+ * pruner: from the second epoch on, a trial scoring below the median of the
+ * trials that already reached that epoch is stopped. Finished trials are
+ * timed on single-image inference, and {@link #table(List)} marks the ones on
+ * the accuracy / epoch time / latency frontier.
+ *
+ * The application has no entry point for sweeps. The only runnable one is
+ * {@code HyperparameterSweepRunner}, which lives in the jmh source set
+ * ({@code src/jmh/java}, compiled only with {@code -Pjmh}) and sweeps
+ * {@link SearchSpace#defaults()}:
+ * {@code mvn -Pjmh compile exec:exec -Dexec.executable=java
+ * -Dexec.args="-cp %classpath edu.farmingdale.dl4j_demo.HyperparameterSweepRunner"}.
+ */
+public class HyperparameterSweep {
+    private static final Logger log = LoggerFactory.getLogger(HyperparameterSweep.class);
+    private static final int EVAL_BATCH_SIZE = 256;
+    private static final int LATENCY_WARMUP = 20;
+    private static final int LATENCY_SAMPLES = 200;
+
+    /**
+     * Values to try for each tuned setting; trials are drawn from their cross product.
+     */
+    public record SearchSpace(List<Double> learningRates, List<Double> momentums, List<Integer> batchSizes,
+                              List<Integer> conv1Filters, List<Integer> conv2Filters, List<Integer> denseUnits) {
+
+        /** @return A space around the current defaults (Nesterovs(0.006, 0.9), batch 64, 20/50 filters, 500 units) */
+        @NotNull
+        public static SearchSpace defaults() {
+            return new SearchSpace(List.of(0.003, 0.006, 0.012), List.of(0.9, 0.95), List.of(32, 64, 128),
+                    List.of(10, 20), List.of(25, 50), List.of(250, 500));
+        }
+
+        /** @return Number of distinct configurations in the space */
+        public int size() {
+            return learningRates.size() * momentums.size() * batchSizes.size()
+                    * conv1Filters.size() * conv2Filters.size() * denseUnits.size();
+        }
+
+        /**
+         * Draws distinct configurations from the space without replacement.
+         * @param base  Settings shared by every trial (epochs, seed, ...)
+         * @param count Number of trials; capped at {@link #size()}
+         * @param seed  Seed for the draw
+         */
+        @NotNull
+        public List<TrainingConfig> sample(@NotNull TrainingConfig base, int count, long seed) {
+            List<Integer> points = new ArrayList<>();
+            for (int i = 0; i < size(); i++) points.add(i);
+            Collections.shuffle(points, new Random(seed));
+
+            List<TrainingConfig> configs = new ArrayList<>();
+            for (int point : points.subList(0, Math.min(count, points.size()))) {
+                // Decode the grid index one dimension at a time
+                int p = point;
+                double lr = learningRates.get(p % learningRates.size()); p /= learningRates.size();
+                double momentum = momentums.get(p % momentums.size()); p /= momentums.size();
+                int batch = batchSizes.get(p % batchSizes.size()); p /= batchSizes.size();
+                int conv1 = conv1Filters.get(p % conv1Filters.size()); p /= conv1Filters.size();
+                int conv2 = conv2Filters.get(p % conv2Filters.size()); p /= conv2Filters.size();
+                int dense = denseUnits.get(p % denseUnits.size());
+                configs.add(base.toBuilder().learningRate(lr).momentum(momentum).batchSize(batch)
+                        .conv1Filters(conv1).conv2Filters(conv2).denseUnits(dense).build());
+            }
+            return configs;
+        }
+    }
+
+    /** How a trial ended. */
+    public enum Status { COMPLETED, PRUNED, FAILED }
+
+    /**
+     * Outcome of one trial.
+     * @param trial         Trial number (1-based, in submission order)
+     * @param config        Settings it trained with
+     * @param status        Whether it finished, was pruned or failed
+     * @param epochs        Epochs it trained
+     * @param accuracy      Validation accuracy after its last epoch
+     * @param epochMillis   Mean wall-clock time per training epoch
+     * @param latencyMillis Median single-image inference latency (NaN unless completed)
+     * @param error         Failure message, or null
+     */
+    public record TrialResult(int trial, TrainingConfig config, Status status, int epochs, double accuracy,
+                              double epochMillis, double latencyMillis, String error) {}
+
+    private final MnistBinaryCache cache;
+    private final int[] trainExamples;
+    private final List<DataSet> validation;
+    private final DataNormalization normalizer = new ImagePreProcessingScaler(0, 1);
+    private final MedianPruner pruner = new MedianPruner(1, 3);
+    private final Consumer<String> logConsumer;
+
+    /**
+     * @param cache              Compiled training data, shared by all trials
+     * @param trainExamples      Example indices every trial trains on
+     * @param validationExamples Example indices every trial is scored on; loaded into memory once
+     * @param logConsumer        Receives one line per trial epoch
+     * @throws IllegalArgumentException If either split is empty
+     */
+    public HyperparameterSweep(@NotNull MnistBinaryCache cache, @NotNull int[] trainExamples,
+                               @NotNull int[] validationExamples, @NotNull Consumer<String> logConsumer) {
+        // The pruner and the latency timing both need held-out images; fail here, not in every trial
+        if (validationExamples.length == 0) {
+            throw new IllegalArgumentException(
+                    "A sweep needs a validation split to score trials on; set validationSize > 0");
+        }
+        if (trainExamples.length == 0) {
+            throw new IllegalArgumentException("A sweep needs at least one training example");
+        }
+        this.cache = cache;
+        this.trainExamples = trainExamples.clone();
+        this.validation = TrainCNN.loadBatches(cache, validationExamples, EVAL_BATCH_SIZE, 0, normalizer);
+        this.logConsumer = logConsumer;
+    }
+
+    /**
+     * Runs every trial and ranks the results: completed trials by validation
+     * accuracy, then pruned trials, then failed ones.
+     * @param configs     Trial settings; each trains for its own {@link TrainingConfig#getEpochs()}
+     * @param parallelism Maximum trials at once (0 = {@link #maxParallelTrials(List)})
+     */
+    @NotNull
+    public List<TrialResult> run(@NotNull List<TrainingConfig> configs, int parallelism)
+            throws InterruptedException, ExecutionException {
+        int threads = parallelism > 0 ? parallelism : maxParallelTrials(configs);
+        logConsumer.accept(String.format("Running %d trial(s), %d at a time", configs.size(), threads));
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "sweep-trial-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Callable<TrialResult>> tasks = new ArrayList<>();
+            for (int i = 0; i < configs.size(); i++) {
+                int trial = i + 1;
+                TrainingConfig config = configs.get(i);
+                tasks.add(() -> runTrial(trial, config));
+            }
+            List<TrialResult> results = new ArrayList<>();
+            for (Future<TrialResult> f : pool.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+            results.sort(Comparator.comparing(TrialResult::status)
+                    .thenComparing(Comparator.comparingDouble(TrialResult::accuracy).reversed()));
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private TrialResult runTrial(int trial, TrainingConfig config) {
+        String name = "Trial " + trial;
+        int epoch = 0;
+        double accuracy = Double.NaN;
+        long trainNanos = 0;
+        try {
+            MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(config));
+            model.init();
+            CachedMnistDataSetIterator train = new CachedMnistDataSetIterator(cache, config.getBatchSize(),
+                    config.getSeed(), trainExamples);
+            train.setPreProcessor(normalizer);
+            train.setAugmenter(MnistAugmenter.forConfig(config));
+
+            while (epoch < config.getEpochs()) {
+                long start = System.nanoTime();
+                model.fit(train);
+                trainNanos += System.nanoTime() - start;
+                train.reset();
+                epoch++;
+
+                accuracy = TrainCNN.evaluate(model, validation).accuracy();
+                logConsumer.accept(String.format(Locale.ROOT, "%s epoch %d: accuracy %.4f (%s)",
+                        name, epoch, accuracy, describe(config)));
+                if (epoch < config.getEpochs() && pruner.shouldPrune(epoch, accuracy)) {
+                    logConsumer.accept(name + " pruned: below the median at epoch " + epoch);
+                    return new TrialResult(trial, config, Status.PRUNED, epoch, accuracy,
+                            trainNanos / 1e6 / epoch, Double.NaN, null);
+                }
+            }
+            return new TrialResult(trial, config, Status.COMPLETED, epoch, accuracy,
+                    trainNanos / 1e6 / epoch, latencyMillis(model), null);
+        } catch (Exception | OutOfMemoryError e) {
+            log.warn("{} failed: {}", name, e.getMessage(), e);
+            logConsumer.accept(name + " failed: " + e);
+            return new TrialResult(trial, config, Status.FAILED, epoch, accuracy,
+                    epoch == 0 ? Double.NaN : trainNanos / 1e6 / epoch, Double.NaN, e.toString());
+        }
+    }
+
+    /** Median batch-1 inference latency over validation images, after a short warm-up. */
+    private double latencyMillis(MultiLayerNetwork model) {
+        INDArray features = validation.get(0).getFeatures();
+        int n = (int) Math.min(features.size(0), LATENCY_SAMPLES);
+        List<INDArray> inputs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            inputs.add(features.get(NDArrayIndex.interval(i, i + 1)).dup());
+        }
+        for (int i = 0; i < LATENCY_WARMUP; i++) {
+            model.output(inputs.get(i % n), false);
+        }
+        // Exact median: the histogram's power-of-two buckets are too coarse to compare trials
+        long[] nanos = new long[n];
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            model.output(inputs.get(i), false);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[n / 2] / 1e6;
+    }
+
+    /**
+     * Trials that can run at once: one per core, and no more than fit in 80% of
+     * ND4J's off-heap limit given the largest trial's training memory estimate.
+     */
+    public static int maxParallelTrials(@NotNull List<TrainingConfig> configs) {
+        long largest = 1;
+        for (TrainingConfig config : configs) {
+            largest = Math.max(largest, estimateTrainingBytes(config));
+        }
+        long byMemory = (long) (Pointer.maxBytes() * 0.8) / largest;
+        int cores = Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(cores, byMemory));
+    }
+
+    /** @return DL4J's estimate of the off-heap memory one training step of this configuration needs */
+    public static long estimateTrainingBytes(@NotNull TrainingConfig config) {
+        return TrainCNN.buildConfiguration(config)
+                .getMemoryReport(InputType.convolutionalFlat(28, 28, 1))
+                .getTotalMemoryBytes(config.getBatchSize(), MemoryUseMode.TRAINING, CacheMode.NONE, DataType.FLOAT);
+    }
+
+    private static String describe(TrainingConfig c) {
+        return String.format(Locale.ROOT, "lr=%s momentum=%s batch=%d conv=%d/%d dense=%d",
+                c.getLearningRate(), c.getMomentum(), c.getBatchSize(), c.getConv1Filters(), c.getConv2Filters(), c.getDenseUnits());
+    }
+
+    /**
+     * Formats ranked results as a table. Completed trials that no other completed
+     * trial beats on accuracy, epoch time and latency at once are marked {@code *}.
+     */
+    @NotNull
+    public static String table(@NotNull List<TrialResult> results) {
+        StringBuilder out = new StringBuilder();
+        out.append("rank | trial | status    | epochs | accuracy | epoch ms | latency ms | configuration\n");
+        int rank = 0;
+        for (TrialResult r : results) {
+            rank++;
+            out.append(String.format(Locale.ROOT, "%3d%s | %5d | %-9s | %6d | %8.4f | %8.0f | %10.3f | %s%n",
+                    rank, onFrontier(r, results) ? "*" : " ", r.trial(), r.status(), r.epochs(), r.accuracy(),
+                    r.epochMillis(), r.latencyMillis(), describe(r.config())));
+        }
+        out.append("* = on the accuracy / epoch time / latency frontier. Times are measured while other trials run.\n");
+        return out.toString();
+    }
+
+    private static boolean onFrontier(TrialResult r, List<TrialResult> results) {
+        if (r.status() != Status.COMPLETED) {
+            return false;
+        }
+        for (TrialResult o : results) {
+            if (o == r || o.status() != Status.COMPLETED) continue;
+            boolean asGood = o.accuracy() >= r.accuracy() && o.epochMillis() <= r.epochMillis()
+                    && o.latencyMillis() <= r.latencyMillis();
+            boolean better = o.accuracy() > r.accuracy() || o.epochMillis() < r.epochMillis()
+                    || o.latencyMillis() < r.latencyMillis();
+            if (asGood && better) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prunes a trial whose score at an epoch is below the median of the scores
+     * other trials reported at the same epoch.
+     */
+    static final class MedianPruner {
+        private final int warmupEpochs;
+        private final int minReports;
+        private final Map<Integer, List<Double>> reports = new HashMap<>();
+
+        /**
+         * @param warmupEpochs Epochs every trial may train before it can be pruned
+         * @param minReports   Earlier reports needed at an epoch before pruning on it
+         */
+        MedianPruner(int warmupEpochs, int minReports) {
+            this.warmupEpochs = warmupEpochs;
+            this.minReports = minReports;
+        }
+
+        synchronized boolean shouldPrune(int epoch, double score) {
+            List<Double> earlier = reports.computeIfAbsent(epoch, e -> new ArrayList<>());
+            boolean prune = false;
+            if (epoch > warmupEpochs && earlier.size() >= minReports) {
+                double[] sorted = earlier.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+                int mid = sorted.length / 2;
+                double median = sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+                prune = score < median;
+            }
+            earlier.add(score);
+            return prune;
+        }
+    }
+}
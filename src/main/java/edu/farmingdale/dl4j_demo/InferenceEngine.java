@@ -0,0 +1,143 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * InferenceEngine
+ * Thread-safe inference over a pool of {@link MultiLayerNetwork} replicas.
+ * A single network must not run concurrent {@code output()} calls, so each
+ * caller borrows its own replica for the duration of a forward pass. Replicas
+ * are handed out through a lock-free queue guarded by a semaphore, so callers
+ * only wait when every replica is busy.
+ *
+ * Replicas share the model's parameter buffer rather than copying it: a
+ * forward pass only reads parameters, and each replica keeps its own
+ * activations. So N replicas cost one set of weights, and a model whose
+ * parameters are memory-mapped ({@link ModelSnapshot}) stays zero-copy.
+ *
+ * The engine also carries the normalizer the model was trained with, so every
+ * caller prepares inputs with exactly the training-time transform.
+ */
+public class InferenceEngine {
+    private static final Logger log = LoggerFactory.getLogger(InferenceEngine.class);
+
+    private final ConcurrentLinkedQueue<MultiLayerNetwork> idle = new ConcurrentLinkedQueue<>();
+    private final Semaphore available;
+    private final int replicaCount;
+    private final DataNormalization normalizer;
+    private final CanvasPreprocessor canvasPreprocessor;
+
+    /**
+     * @param model        Trained network; its parameters are shared with the replicas, so it must not be
+     *                     trained or otherwise modified afterwards
+     * @param normalizer   Normalizer the network was trained with
+     * @param replicaCount Number of independent replicas (maximum concurrent forward passes)
+     */
+    public InferenceEngine(@NotNull MultiLayerNetwork model, @NotNull DataNormalization normalizer, int replicaCount) {
+        if (replicaCount <= 0) {
+            throw new IllegalArgumentException("Replica count must be positive: " + replicaCount);
+        }
+        INDArray params = model.params();
+        for (int i = 0; i < replicaCount; i++) {
+            MultiLayerNetwork replica = new MultiLayerNetwork(model.getLayerWiseConfigurations().clone());
+            replica.init(params, false); // false: use the buffer as is, no copy
+            idle.add(replica);
+        }
+        this.replicaCount = replicaCount;
+        this.available = new Semaphore(replicaCount);
+        this.normalizer = normalizer;
+        this.canvasPreprocessor = CanvasPreprocessor.forNormalizer(normalizer);
+        log.info("Inference engine ready with {} replica(s)", replicaCount);
+    }
+
+    /**
+     * A replica count that scales with the machine without oversubscribing the
+     * cores ND4J's own math threads already use.
+     */
+    public static int defaultReplicaCount() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * Runs a forward pass on a borrowed replica.
+     * @param input Normalized input, shape [batch, 1, 28, 28]
+     * @return Softmax probabilities, shape [batch, 10]
+     * @throws InterruptedException If interrupted while waiting for a free replica
+     */
+    @NotNull
+    public INDArray output(@NotNull INDArray input) throws InterruptedException {
+        available.acquire();
+        MultiLayerNetwork replica = idle.poll(); // Never null: the semaphore guarantees one is idle
+        try {
+            return replica.output(input);
+        } finally {
+            idle.add(replica);
+            available.release();
+        }
+    }
+
+    /**
+     * Predicts the most likely digit for each example.
+     * @param input Normalized input, shape [batch, 1, 28, 28]
+     * @return The predicted class of each example
+     * @throws InterruptedException If interrupted while waiting for a free replica
+     */
+    @NotNull
+    public int[] predict(@NotNull INDArray input) throws InterruptedException {
+        return output(input).argMax(1).toIntVector();
+    }
+
+    /**
+     * Runs dummy forward passes at batch sizes 1 and 32 on every replica, so the
+     * JIT and ND4J workspaces are warm before the first real request.
+     * @param passesPerReplica Number of passes of each size per replica
+     * @throws InterruptedException If interrupted while waiting for a free replica
+     */
+    public void warmUp(int passesPerReplica) throws InterruptedException {
+        INDArray single = Nd4j.zeros(DataType.FLOAT, 1, 1, 28, 28);
+        INDArray batch = Nd4j.zeros(DataType.FLOAT, 32, 1, 28, 28);
+        // Replicas are returned to the back of the queue, so sequential calls visit each in turn
+        for (int i = 0; i < passesPerReplica * replicaCount; i++) {
+            output(single);
+            output(batch);
+        }
+    }
+
+    /**
+     * Applies the training-time normalization in place.
+     * @param features Raw 0..255 pixels, shape [batch, 1, 28, 28]
+     * @return {@code features}, normalized
+     */
+    @NotNull
+    public INDArray normalize(@NotNull INDArray features) {
+        normalizer.transform(features);
+        return features;
+    }
+
+    /** @return The normalizer the model was trained with */
+    @NotNull
+    public DataNormalization getNormalizer() {
+        return normalizer;
+    }
+
+    /** @return A canvas preprocessor with the training-time normalization fused in */
+    @NotNull
+    public CanvasPreprocessor getCanvasPreprocessor() {
+        return canvasPreprocessor;
+    }
+
+    /** @return Number of replicas in the pool */
+    public int getReplicaCount() {
+        return replicaCount;
+    }
+}
@@ -0,0 +1,365 @@
+package edu.farmingdale.dl4j_demo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InferenceServer
+ * Headless HTTP front end for the digit model. The model is loaded and warmed
+ * up before the port opens, so the first request is as fast as any other.
+ *
+ * Endpoints (all bound to loopback by default):
+ * <ul>
+ *   <li>{@code POST /predict} - one image, either 784 raw grayscale bytes (28x28, row-major,
+ *       MNIST convention: 0 = background, 255 = ink) or a PNG file</li>
+ *   <li>{@code POST /predict/batch} - N images, either N*784 raw bytes or a sequence of PNGs,
+ *       each preceded by its length as a 4-byte big-endian integer</li>
+ *   <li>{@code GET /metrics} - request counts, latency, throughput and batching, followed by
+ *       the process-wide {@link PerfMetrics}, all in the Prometheus text format</li>
+ *   <li>{@code GET /health} - 200 once the model is loaded</li>
+ * </ul>
+ * Predictions are returned as JSON with the digit and the softmax vector.
+ *
+ * Requests run on virtual threads, but at most {@code maxInFlight} are processed at
+ * once; beyond that the server answers 429 instead of queueing without bound.
+ * Forward passes never run on the request threads: a {@link BatchingPredictor}
+ * groups single-image requests into batched passes and runs batch requests as
+ * they are, both on its small pool of platform threads, which are warmed up
+ * before the port opens and keep their ND4J workspaces between requests.
+ */
+public class InferenceServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(InferenceServer.class);
+
+    private static final int PIXELS = 28 * 28;
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G'};
+    private static final int WARMUP_PASSES = 10; // Per replica
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final BatchingPredictor batcher;
+
+    // Metrics
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong images = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Loads and warms up the model and binds the port; {@link #start} registers the handlers.
+     */
+    private InferenceServer(InetSocketAddress address, int maxInFlight) throws IOException {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        InferenceEngine engine = TrainCNN.getEngine();
+        this.batcher = new BatchingPredictor(TrainCNN::getEngine, 32, 2_000, engine.getReplicaCount());
+        warmUp(batcher);
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Loads and warms up the model, then starts listening.
+     * @param address     Address and port to bind (port 0 picks a free one)
+     * @param maxInFlight Maximum requests processed concurrently before answering 429
+     * @return The running server
+     * @throws IOException If the model cannot be loaded or the port cannot be bound
+     */
+    @NotNull
+    public static InferenceServer start(@NotNull InetSocketAddress address, int maxInFlight) throws IOException {
+        // Handlers are registered only once the server is fully constructed
+        InferenceServer s = new InferenceServer(address, maxInFlight);
+        s.server.createContext("/predict", s::handlePredict);
+        s.server.createContext("/predict/batch", s::handlePredict);
+        s.server.createContext("/metrics", s::handleMetrics);
+        s.server.createContext("/health", exchange -> respond(exchange, 200, "text/plain", "OK\n"));
+        s.server.start();
+        log.info("Inference server listening on {}", s.getAddress());
+        return s;
+    }
+
+    /**
+     * Runs a few dummy forward passes at single and batch sizes on every forward-pass
+     * thread, and decodes one PNG, so the JIT, ImageIO and ND4J workspaces are warm
+     * before the first real request.
+     */
+    private static void warmUp(BatchingPredictor batcher) throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY), "png", png);
+        byte[] pngBytes = png.toByteArray();
+        decodeImage(pngBytes, 0, pngBytes.length);
+        try {
+            batcher.warmUp(WARMUP_PASSES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during warm-up", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Warm-up failed", e.getCause());
+        }
+        log.info("Model warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** @return The bound address (useful when started on port 0) */
+    @NotNull
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "text/plain", "Use POST\n");
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, "text/plain", "Too many requests in flight\n");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            boolean batch = exchange.getRequestURI().getPath().endsWith("/batch");
+            byte[] body = readBody(exchange.getRequestBody());
+            INDArray features = batch ? decodeBatch(body) : decodeImage(body, 0, body.length);
+            TrainCNN.getEngine().normalize(features); // The same transform the model was trained with
+
+            List<Prediction> predictions = batch
+                    ? batcher.submitBatch(features).get()
+                    : List.of(batcher.submit(features).get());
+            requests.incrementAndGet();
+            images.addAndGet(predictions.size());
+            latency.record(System.nanoTime() - start);
+            respond(exchange, 200, "application/json",
+                    batch ? toJson(predictions) : toJson(predictions.get(0)));
+        } catch (IllegalArgumentException e) {
+            failures.incrementAndGet();
+            respond(exchange, 400, "text/plain", e.getMessage() + "\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.incrementAndGet();
+            respond(exchange, 503, "text/plain", "Interrupted\n");
+        } catch (ExecutionException | RuntimeException e) {
+            failures.incrementAndGet();
+            log.warn("Prediction failed", e);
+            respond(exchange, 500, "text/plain", "Prediction failed\n");
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        if (body.length == 0) {
+            throw new IllegalArgumentException("Empty request body");
+        }
+        return body;
+    }
+
+    /**
+     * Decodes one image (raw bytes or PNG) into a [1, 1, 28, 28] array of 0..255 values.
+     * PNGs of other sizes are converted to grayscale and scaled to 28x28.
+     */
+    private static INDArray decodeImage(byte[] body, int offset, int length) {
+        float[] pixels = new float[PIXELS];
+        if (isPng(body, offset, length)) {
+            BufferedImage image;
+            try {
+                image = ImageIO.read(new ByteArrayInputStream(body, offset, length));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not decode PNG: " + e.getMessage());
+            }
+            if (image == null) {
+                throw new IllegalArgumentException("Could not decode PNG");
+            }
+            if (image.getType() != BufferedImage.TYPE_BYTE_GRAY || image.getWidth() != 28 || image.getHeight() != 28) {
+                BufferedImage gray = new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY);
+                Graphics2D g2d = gray.createGraphics();
+                g2d.drawImage(image, 0, 0, 28, 28, null);
+                g2d.dispose();
+                image = gray;
+            }
+            int[] gray = image.getRaster().getPixels(0, 0, 28, 28, (int[]) null);
+            for (int i = 0; i < PIXELS; i++) {
+                pixels[i] = gray[i];
+            }
+        } else if (length == PIXELS) {
+            for (int i = 0; i < PIXELS; i++) {
+                pixels[i] = body[offset + i] & 0xFF;
+            }
+        } else {
+            throw new IllegalArgumentException("Expected a PNG or " + PIXELS + " raw bytes, got " + length + " bytes");
+        }
+        return Nd4j.create(pixels, new long[]{1, 1, 28, 28}, 'c');
+    }
+
+    /**
+     * Decodes N*784 raw bytes or a sequence of length-prefixed PNGs into [N, 1, 28, 28].
+     */
+    private static INDArray decodeBatch(byte[] body) {
+        List<INDArray> decoded = new ArrayList<>();
+        if (body.length >= 4 + PNG_MAGIC.length && isPng(body, 4, body.length - 4)) {
+            ByteBuffer buf = ByteBuffer.wrap(body);
+            while (buf.remaining() > 0) {
+                if (buf.remaining() < 4) {
+                    throw new IllegalArgumentException("Truncated PNG length prefix");
+                }
+                int length = buf.getInt();
+                if (length <= 0 || length > buf.remaining()) {
+                    throw new IllegalArgumentException("Invalid PNG length prefix: " + length);
+                }
+                decoded.add(decodeImage(body, buf.position(), length));
+                buf.position(buf.position() + length);
+            }
+        } else {
+            if (body.length % PIXELS != 0) {
+                throw new IllegalArgumentException("Raw batch must be a multiple of " + PIXELS + " bytes, got " + body.length);
+            }
+            for (int offset = 0; offset < body.length; offset += PIXELS) {
+                decoded.add(decodeImage(body, offset, PIXELS));
+            }
+        }
+        return decoded.size() == 1 ? decoded.get(0) : Nd4j.concat(0, decoded.toArray(new INDArray[0]));
+    }
+
+    private static boolean isPng(byte[] body, int offset, int length) {
+        if (length < PNG_MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_MAGIC.length; i++) {
+            if (body[offset + i] != PNG_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String toJson(Prediction p) {
+        StringBuilder sb = new StringBuilder("{\"digit\":").append(p.digit()).append(",\"probabilities\":[");
+        float[] probs = p.probabilities();
+        for (int i = 0; i < probs.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.6f", probs[i]));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String toJson(List<Prediction> predictions) {
+        StringBuilder sb = new StringBuilder("{\"predictions\":[");
+        for (int i = 0; i < predictions.size(); i++) {
+            sb.append(i == 0 ? "" : ",").append(toJson(predictions.get(i)));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        double uptime = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder out = new StringBuilder();
+        metric(out, "requests_total", "counter", "Prediction requests answered", requests.get());
+        metric(out, "images_total", "counter", "Images classified", images.get());
+        metric(out, "rejected_total", "counter", "Requests answered 429 because too many were in flight", rejected.get());
+        metric(out, "failures_total", "counter", "Prediction requests that failed", failures.get());
+        metric(out, "in_flight", "gauge", "Prediction requests being processed", maxInFlight - inFlight.availablePermits());
+        metric(out, "uptime_seconds", "gauge", "Time since the server started", uptime);
+        metric(out, "images_per_second", "gauge", "Images classified per second since the server started",
+                uptime == 0 ? 0.0 : images.get() / uptime);
+        metric(out, "latency_ms_mean", "gauge", "Mean request latency in milliseconds", latency.getMeanMillis());
+        metric(out, "latency_ms_p50", "gauge", "Median request latency in milliseconds", latency.getPercentileMillis(50));
+        metric(out, "latency_ms_p99", "gauge", "99th percentile request latency in milliseconds", latency.getPercentileMillis(99));
+        metric(out, "latency_ms_max", "gauge", "Largest request latency in milliseconds", latency.getMaxMillis());
+
+        // Batching of single-image requests: one sample per batch size seen so far
+        PerfMetrics.header(out, "batches_total", "Batched forward passes by number of images", "counter");
+        long[] sizes = batcher.getBatchSizeHistogram();
+        for (int n = 1; n < sizes.length; n++) {
+            if (sizes[n] > 0) {
+                out.append("batches_total{size=\"").append(n).append("\"} ").append(sizes[n]).append('\n');
+            }
+        }
+        metric(out, "batch_queue_depth", "gauge", "Single-image requests waiting for a batch", batcher.getQueueDepth());
+        metric(out, "batch_queue_ms_p50", "gauge", "Median time a request waited for its batch in milliseconds",
+                batcher.getQueueLatency().getPercentileMillis(50));
+        metric(out, "batch_queue_ms_p99", "gauge", "99th percentile time a request waited for its batch in milliseconds",
+                batcher.getQueueLatency().getPercentileMillis(99));
+
+        out.append(PerfMetrics.prometheusText());
+        respond(exchange, 200, "text/plain; version=0.0.4", out.toString());
+    }
+
+    /** Appends one unlabelled sample with its HELP and TYPE lines. */
+    private static void metric(StringBuilder out, String name, String type, String help, long value) {
+        PerfMetrics.header(out, name, help, type);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help, double value) {
+        PerfMetrics.header(out, name, help, type);
+        out.append(name).append(' ').append(Double.toString(value)).append('\n');
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Stops accepting connections, waits briefly for in-flight requests and releases the threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        batcher.close();
+        executor.shutdown();
+    }
+
+    /**
+     * Starts the server. Usage: {@code InferenceServer [port] [bindAddress] [maxInFlight]}
+     * (defaults: 8080, 127.0.0.1, 64).
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String host = args.length > 1 ? args[1] : "127.0.0.1";
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        InferenceServer server = InferenceServer.start(new InetSocketAddress(host, port), maxInFlight);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        PerfMetrics.startPeriodicLog(1, TimeUnit.MINUTES);
+        System.out.println("Serving digit predictions on http://" + host + ":" + server.getAddress().getPort() + "/predict");
+    }
+}
@@ -0,0 +1,98 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram
+ * A fixed-size, lock-free latency histogram. Bucket upper bounds grow by a factor
+ * of two from 1 µs to roughly 35 minutes, so recording is a single atomic
+ * increment and percentiles are accurate to within one bucket.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 32; // Bucket i holds values <= 2^i µs; the last one is unbounded
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one observation.
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos) {
+        // Round to the nearest µs; truncating would put everything below 2 µs into the <= 1 µs bucket
+        long micros = (Math.max(0, nanos) + 500) / 1_000;
+        int bucket = micros <= 1 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+        counts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** @return Number of observations */
+    public long getCount() {
+        return count.get();
+    }
+
+    /** @return Sum of all observations in nanoseconds */
+    public long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    /** @return Mean observation in milliseconds, or 0 if empty */
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : sumNanos.get() / 1e6 / n;
+    }
+
+    /** @return Largest observation in milliseconds */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return Upper bound of the bucket containing that percentile, in milliseconds (0 if empty)
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? getMaxMillis() : Math.min(getMaxMillis(), bucketUpperBoundMicros(i) / 1e3);
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /** @return Number of buckets */
+    public int getBucketCount() {
+        return BUCKETS;
+    }
+
+    /** @return Inclusive upper bound of a bucket in microseconds ({@link Long#MAX_VALUE} for the last) */
+    public long bucketUpperBoundMicros(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /** @return Observations that fell into a bucket */
+    public long getCountInBucket(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /** @return A one-line summary such as {@code n=120 mean=1.20ms p50=1.02ms p99=4.10ms max=5.33ms} */
+    @NotNull
+    public String summary() {
+        return String.format("n=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+    }
+}
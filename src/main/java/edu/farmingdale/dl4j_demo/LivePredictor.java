@@ -0,0 +1,164 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * LivePredictor
+ * Classifies a drawing while it is being drawn, on one reusable background
+ * thread.
+ *
+ * Requests are coalesced rather than queued: there is a single pending slot,
+ * and a newer ink grid replaces one that has not started yet. The first
+ * request after a quiet period is run {@code debounceMillis} later, so a burst
+ * of mouse events costs one forward pass per window instead of one per event,
+ * and results keep arriving while the pen keeps moving. At most one prediction
+ * runs at a time, so a slow model makes updates less frequent instead of
+ * building a backlog.
+ *
+ * Results and errors are handed to the {@code deliverer} (e.g.
+ * {@code Platform::runLater}). A missing model ({@link FileNotFoundException})
+ * is expected before the first training run, so it is logged once, without a
+ * stack trace, rather than on every debounce window. {@link #cancel()}
+ * discards anything pending or running, so a result for an erased drawing
+ * never shows up after a clear.
+ */
+public class LivePredictor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(LivePredictor.class);
+    private static final LongAdder REQUESTS = PerfMetrics.counter("live_prediction_requests",
+            "Ink grids submitted for live prediction");
+    private static final LongAdder RUNS = PerfMetrics.counter("live_prediction_runs",
+            "Live predictions actually run after coalescing");
+
+    /** Classifies a 28x28 ink grid, e.g. {@code TrainCNN::predictInk}. */
+    @FunctionalInterface
+    public interface Classifier {
+        @NotNull
+        Prediction classify(@NotNull float[] ink) throws Exception;
+    }
+
+    /** The latest ink grid, tagged with the drawing it belongs to. */
+    private record Request(long drawing, float[] ink) {}
+
+    private final Classifier classifier;
+    private final long debounceMillis;
+    private final Executor deliverer;
+    private final Consumer<Prediction> onResult;
+    private final Consumer<Throwable> onError;
+    private final ScheduledExecutorService worker;
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong drawing = new AtomicLong(); // Bumped by cancel()
+    private boolean missingModelLogged; // Worker thread only
+
+    /**
+     * @param classifier     Runs the prediction, on the worker thread
+     * @param debounceMillis Delay between the first request of a burst and its prediction
+     * @param deliverer      Runs the callbacks, e.g. {@code Platform::runLater}
+     * @param onResult       Receives each prediction that was not cancelled
+     * @param onError        Receives prediction failures
+     */
+    public LivePredictor(@NotNull Classifier classifier, long debounceMillis, @NotNull Executor deliverer,
+                         @NotNull Consumer<Prediction> onResult, @NotNull Consumer<Throwable> onError) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce delay must not be negative: " + debounceMillis);
+        }
+        this.classifier = classifier;
+        this.debounceMillis = debounceMillis;
+        this.deliverer = deliverer;
+        this.onResult = onResult;
+        this.onError = onError;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "live-prediction");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Requests a prediction after the debounce delay, replacing any request that has not started.
+     * @param ink Ink grid, 0..255 per cell; must not be modified afterwards
+     */
+    public void submit(@NotNull float[] ink) {
+        REQUESTS.increment();
+        pending.set(new Request(drawing.get(), ink));
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                worker.schedule(this::run, debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false); // Closed
+            }
+        }
+    }
+
+    /**
+     * Requests a prediction as soon as the worker is free, replacing any request that has not started.
+     * @param ink Ink grid, 0..255 per cell; must not be modified afterwards
+     */
+    public void submitNow(@NotNull float[] ink) {
+        REQUESTS.increment();
+        pending.set(new Request(drawing.get(), ink));
+        try {
+            worker.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            log.debug("Live prediction requested after close");
+        }
+    }
+
+    /** Drops the pending request and suppresses the result of one that is running. */
+    public void cancel() {
+        drawing.incrementAndGet();
+        pending.set(null);
+    }
+
+    /** Worker thread: predicts the latest request, if any is left. */
+    private void run() {
+        // Clear the flag first, so a request arriving from here on schedules another run
+        scheduled.set(false);
+        Request request = pending.getAndSet(null);
+        if (request == null) {
+            return; // Already taken by an earlier run, or cancelled
+        }
+        RUNS.increment();
+        try {
+            Prediction prediction = classifier.classify(request.ink());
+            missingModelLogged = false; // Log again if the model goes missing later
+            if (request.drawing() == drawing.get()) {
+                deliverer.execute(() -> {
+                    // Re-check on the delivering thread, in case cancel() ran in between
+                    if (request.drawing() == drawing.get()) {
+                        onResult.accept(prediction);
+                    }
+                });
+            }
+        } catch (FileNotFoundException e) {
+            if (!missingModelLogged) {
+                missingModelLogged = true;
+                log.info("No model to predict with yet: {}", e.getMessage());
+            }
+            deliverer.execute(() -> onError.accept(e));
+        } catch (Exception e) {
+            log.warn("Live prediction failed", e);
+            deliverer.execute(() -> onError.accept(e));
+        }
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        worker.shutdownNow();
+    }
+}
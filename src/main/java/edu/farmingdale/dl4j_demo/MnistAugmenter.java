@@ -0,0 +1,137 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.SplittableRandom;
+
+/**
+ * MnistAugmenter
+ * Randomly distorts training digits as they are loaded, so the network learns
+ * to cope with canvas-style input (off-centre, tilted, larger or smaller,
+ * thicker strokes) without augmented copies being written to disk.
+ *
+ * Each selected example gets one random affine transform about the image
+ * centre (shift, rotation, scale), applied by inverse mapping with bilinear
+ * sampling, and optionally a one-pixel dilation or erosion of its strokes
+ * (dilation three times as often, since canvas strokes are thick).
+ *
+ * The random draws depend only on the seed, the epoch and the example index,
+ * never on which thread loads the example or in what order. So runs are
+ * reproducible and a resumed run sees the same data. Thread-safe: scratch
+ * buffers are per thread, so prefetch workers can augment in parallel without
+ * allocating.
+ */
+public class MnistAugmenter {
+    private static final int SIZE = MnistBinaryCache.ROWS;
+    private static final int PIXELS = MnistBinaryCache.PIXELS;
+    private static final double CENTRE = (SIZE - 1) / 2.0;
+
+    private final double probability;
+    private final double maxShift;
+    private final double maxRotationRadians;
+    private final double maxScale;
+    private final double thicknessProbability;
+    private final ThreadLocal<float[]> scratch = ThreadLocal.withInitial(() -> new float[PIXELS]);
+
+    /**
+     * @param probability          Fraction of examples to transform
+     * @param maxShift             Largest shift, in pixels
+     * @param maxRotationDegrees   Largest rotation either way, in degrees
+     * @param maxScale             Largest relative change of size
+     * @param thicknessProbability Fraction of transformed examples whose strokes are also dilated or eroded
+     */
+    public MnistAugmenter(double probability, double maxShift, double maxRotationDegrees, double maxScale,
+                          double thicknessProbability) {
+        this.probability = probability;
+        this.maxShift = maxShift;
+        this.maxRotationRadians = Math.toRadians(maxRotationDegrees);
+        this.maxScale = maxScale;
+        this.thicknessProbability = thicknessProbability;
+    }
+
+    /**
+     * @return The augmenter the config describes, or null if augmentation is off
+     */
+    @Nullable
+    public static MnistAugmenter forConfig(@NotNull TrainingConfig config) {
+        if (config.getAugmentProbability() == 0) {
+            return null;
+        }
+        return new MnistAugmenter(config.getAugmentProbability(), config.getAugmentMaxShift(),
+                config.getAugmentMaxRotation(), config.getAugmentMaxScale(), config.getAugmentThicknessProbability());
+    }
+
+    /**
+     * Transforms one example in place, or leaves it unchanged if it is not selected this epoch.
+     * @param pixels  Raw 0..255 values of one or more examples
+     * @param offset  Start of this example's 28x28 pixels in {@code pixels}
+     * @param seed    Run seed
+     * @param epoch   Epoch number
+     * @param example Index of the example in its data set
+     */
+    public void augment(@NotNull float[] pixels, int offset, long seed, int epoch, int example) {
+        SplittableRandom rng = new SplittableRandom((seed * 0x9E3779B97F4A7C15L + epoch) * 0x9E3779B97F4A7C15L + example);
+        if (rng.nextDouble() >= probability) {
+            return;
+        }
+        double angle = (2 * rng.nextDouble() - 1) * maxRotationRadians;
+        double scale = 1 + (2 * rng.nextDouble() - 1) * maxScale;
+        double shiftX = (2 * rng.nextDouble() - 1) * maxShift;
+        double shiftY = (2 * rng.nextDouble() - 1) * maxShift;
+        int thickness = rng.nextDouble() < thicknessProbability ? (rng.nextInt(4) == 0 ? -1 : 1) : 0;
+
+        float[] source = scratch.get();
+        System.arraycopy(pixels, offset, source, 0, PIXELS);
+        warp(source, pixels, offset, angle, scale, shiftX, shiftY);
+        if (thickness != 0) {
+            System.arraycopy(pixels, offset, source, 0, PIXELS);
+            morph(source, pixels, offset, thickness > 0);
+        }
+    }
+
+    /**
+     * Writes the affine transform of {@code source} to {@code dest}: each output
+     * pixel is bilinearly sampled at its inverse-transformed position (zero outside).
+     */
+    private static void warp(float[] source, float[] dest, int offset,
+                             double angle, double scale, double shiftX, double shiftY) {
+        // Inverse of "scale, rotate, then shift" about the centre
+        double cos = Math.cos(angle) / scale;
+        double sin = Math.sin(angle) / scale;
+        for (int y = 0; y < SIZE; y++) {
+            double v = y - CENTRE - shiftY;
+            for (int x = 0; x < SIZE; x++) {
+                double u = x - CENTRE - shiftX;
+                double sx = cos * u + sin * v + CENTRE;
+                double sy = -sin * u + cos * v + CENTRE;
+                int x0 = (int) Math.floor(sx);
+                int y0 = (int) Math.floor(sy);
+                float fx = (float) (sx - x0);
+                float fy = (float) (sy - y0);
+                float top = (1 - fx) * at(source, x0, y0) + fx * at(source, x0 + 1, y0);
+                float bottom = (1 - fx) * at(source, x0, y0 + 1) + fx * at(source, x0 + 1, y0 + 1);
+                dest[offset + y * SIZE + x] = (1 - fy) * top + fy * bottom;
+            }
+        }
+    }
+
+    private static float at(float[] image, int x, int y) {
+        return x < 0 || y < 0 || x >= SIZE || y >= SIZE ? 0.0f : image[y * SIZE + x];
+    }
+
+    /** Grows (max) or shrinks (min) the strokes by one pixel, over each pixel and its four neighbours. */
+    private static void morph(float[] source, float[] dest, int offset, boolean dilate) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                float v = source[y * SIZE + x];
+                float up = at(source, x, y - 1), down = at(source, x, y + 1);
+                float left = at(source, x - 1, y), right = at(source, x + 1, y);
+                v = dilate
+                        ? Math.max(v, Math.max(Math.max(up, down), Math.max(left, right)))
+                        : Math.min(v, Math.min(Math.min(up, down), Math.min(left, right)));
+                dest[offset + y * SIZE + x] = v;
+            }
+        }
+    }
+}
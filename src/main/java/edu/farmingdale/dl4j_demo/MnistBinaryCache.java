@@ -0,0 +1,307 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.datavec.image.loader.NativeImageLoader;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * MnistBinaryCache
+ * A compiled, pre-decoded copy of an {@code mnist_png} directory tree.
+ * Every image is decoded once into 28x28 uint8 pixels and written, together
+ * with its label, to a single binary file. Training then memory-maps that file
+ * instead of decoding tens of thousands of PNGs on every epoch.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int  magic ("MNST")     int  version
+ *   int  count              int  rows
+ *   int  cols               int  numClasses
+ *   long source fingerprint long CRC32 of the payload
+ *   byte[count * rows * cols] pixels
+ *   byte[count]               labels
+ * </pre>
+ * The fingerprint covers the relative path, size and modification time of
+ * every source image the cache is built from, so the cache is rebuilt
+ * automatically when those images change.
+ */
+public final class MnistBinaryCache {
+    private static final Logger log = LoggerFactory.getLogger(MnistBinaryCache.class);
+
+    private static final int MAGIC = 0x4D4E5354; // "MNST"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES + 2 * Long.BYTES;
+
+    public static final int ROWS = 28, COLS = 28;
+    public static final int PIXELS = ROWS * COLS;
+
+    private final File file;
+    private final ByteBuffer buffer; // Read-only view; only absolute gets are used, so it is safe to share across threads
+    private final int count;
+    private final int numClasses;
+    private final long fingerprint;
+
+    private MnistBinaryCache(File file, ByteBuffer buffer, int count, int numClasses, long fingerprint) {
+        this.file = file;
+        this.buffer = buffer;
+        this.count = count;
+        this.numClasses = numClasses;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Opens the cache for a source directory, (re)building it first when it is
+     * missing, corrupt or out of date with respect to the PNG tree.
+     * @param sourceDir   Directory laid out as {@code <label>/<image>.png}
+     * @param cacheFile   Where the compiled binary lives
+     * @param logConsumer Receives progress lines
+     * @return The memory-mapped cache
+     * @throws IOException If the source cannot be read or the cache cannot be written
+     */
+    @NotNull
+    public static MnistBinaryCache loadOrBuild(@NotNull File sourceDir, @NotNull File cacheFile,
+                                               @NotNull Consumer<String> logConsumer) throws IOException {
+        List<String> labels = labelDirectories(sourceDir);
+        List<List<Path>> images = sourceImages(sourceDir, labels);
+        long fingerprint = fingerprint(sourceDir, images);
+        if (cacheFile.exists()) {
+            try {
+                MnistBinaryCache cache = open(cacheFile);
+                if (cache.fingerprint == fingerprint) {
+                    logConsumer.accept("Using compiled dataset " + cacheFile.getName() + " (" + cache.count + " images).");
+                    return cache;
+                }
+                logConsumer.accept("Source images changed since " + cacheFile.getName() + " was built. Rebuilding...");
+            } catch (IOException e) {
+                log.warn("Discarding unreadable dataset cache {}: {}", cacheFile.getAbsolutePath(), e.getMessage());
+                logConsumer.accept("Dataset cache " + cacheFile.getName() + " is invalid. Rebuilding...");
+            }
+        } else {
+            logConsumer.accept("Compiling " + sourceDir.getName() + " images into " + cacheFile.getName() + " (one-time step)...");
+        }
+        build(images, labels.size(), cacheFile, fingerprint);
+        MnistBinaryCache cache = open(cacheFile);
+        logConsumer.accept("Compiled " + cache.count + " images into " + cacheFile.getName() + ".");
+        return cache;
+    }
+
+    /**
+     * Maps an existing cache file and verifies its header and checksum.
+     * @param cacheFile The compiled binary
+     * @return The memory-mapped cache
+     * @throws IOException If the file is truncated, has a bad header or fails the checksum
+     */
+    @NotNull
+    public static MnistBinaryCache open(@NotNull File cacheFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Dataset cache is truncated: " + cacheFile.getAbsolutePath());
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                throw new IOException("Not a dataset cache (bad magic/version): " + cacheFile.getAbsolutePath());
+            }
+            int count = mapped.getInt(8);
+            int rows = mapped.getInt(12);
+            int cols = mapped.getInt(16);
+            int numClasses = mapped.getInt(20);
+            long fingerprint = mapped.getLong(24);
+            long checksum = mapped.getLong(32);
+            if (rows != ROWS || cols != COLS) {
+                throw new IOException("Unexpected image size " + rows + "x" + cols + " in " + cacheFile.getAbsolutePath());
+            }
+            long payload = (long) count * (PIXELS + 1);
+            if (channel.size() != HEADER_BYTES + payload) {
+                throw new IOException("Dataset cache size does not match its header: " + cacheFile.getAbsolutePath());
+            }
+            ByteBuffer body = mapped.slice(HEADER_BYTES, (int) payload);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if (crc.getValue() != checksum) {
+                throw new IOException("Dataset cache checksum mismatch: " + cacheFile.getAbsolutePath());
+            }
+            return new MnistBinaryCache(cacheFile, body.asReadOnlyBuffer(), count, numClasses, fingerprint);
+        }
+    }
+
+    /**
+     * Decodes the source images and writes the binary cache.
+     * The file is written to a temporary name and renamed into place, so a crash
+     * never leaves a half-written cache behind.
+     * @param sourceImages Images of each label, from {@link #sourceImages}
+     */
+    private static void build(List<List<Path>> sourceImages, int numClasses, File cacheFile, long fingerprint) throws IOException {
+        List<Path> images = new ArrayList<>();
+        List<Byte> imageLabels = new ArrayList<>();
+        for (int label = 0; label < sourceImages.size(); label++) {
+            images.addAll(sourceImages.get(label));
+            for (int i = 0; i < sourceImages.get(label).size(); i++) {
+                imageLabels.add((byte) label);
+            }
+        }
+
+        // Decode in parallel; each worker thread gets its own loader
+        byte[] pixels = new byte[images.size() * PIXELS];
+        ThreadLocal<NativeImageLoader> loaders = ThreadLocal.withInitial(() -> new NativeImageLoader(ROWS, COLS, 1));
+        IntStream.range(0, images.size()).parallel().forEach(i -> {
+            try {
+                INDArray image = loaders.get().asMatrix(images.get(i).toFile()); // Shape: [1, 1, 28, 28], values 0..255
+                float[] values = image.data().asFloat();
+                for (int p = 0; p < PIXELS; p++) {
+                    pixels[i * PIXELS + p] = (byte) Math.round(values[p]);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not decode " + images.get(i), e);
+            }
+        });
+        byte[] labelBytes = new byte[images.size()];
+        for (int i = 0; i < labelBytes.length; i++) {
+            labelBytes[i] = imageLabels.get(i);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(pixels);
+        crc.update(labelBytes);
+
+        Path target = cacheFile.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), cacheFile.getName(), ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(images.size());
+            out.writeInt(ROWS);
+            out.writeInt(COLS);
+            out.writeInt(numClasses);
+            out.writeLong(fingerprint);
+            out.writeLong(crc.getValue());
+            out.write(pixels);
+            out.write(labelBytes);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote dataset cache {} ({} images)", target, images.size());
+    }
+
+    /**
+     * Label names are the sorted sub-directory names, matching the order
+     * {@code ParentPathLabelGenerator} + {@code ImageRecordReader} would assign.
+     */
+    private static List<String> labelDirectories(File sourceDir) throws IOException {
+        if (!sourceDir.isDirectory()) {
+            throw new IOException("Dataset directory not found: " + sourceDir.getAbsolutePath());
+        }
+        File[] dirs = sourceDir.listFiles(File::isDirectory);
+        if (dirs == null || dirs.length == 0) {
+            throw new IOException("No label directories found in " + sourceDir.getAbsolutePath());
+        }
+        return Arrays.stream(dirs).map(File::getName).sorted().toList();
+    }
+
+    /**
+     * The images a cache is built from: the image files directly inside each
+     * label directory, sorted by name. Anything else in the tree is ignored.
+     * @return One list per label, in the order of {@code labels}
+     */
+    private static List<List<Path>> sourceImages(File sourceDir, List<String> labels) throws IOException {
+        List<List<Path>> images = new ArrayList<>();
+        for (String label : labels) {
+            try (Stream<Path> files = Files.list(sourceDir.toPath().resolve(label))) {
+                images.add(files.filter(Files::isRegularFile).filter(MnistBinaryCache::isImage).sorted().toList());
+            }
+        }
+        return images;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && Arrays.asList(NativeImageLoader.ALLOWED_FORMATS).contains(name.substring(dot + 1));
+    }
+
+    /**
+     * A 64-bit FNV-1a hash over the relative path, size and modification time
+     * of every image the cache is built from. Only file metadata is read, not contents.
+     */
+    private static long fingerprint(File sourceDir, List<List<Path>> sourceImages) throws IOException {
+        Path root = sourceDir.toPath();
+        long hash = 0xcbf29ce484222325L;
+        for (List<Path> images : sourceImages) {
+            for (Path path : images) {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                hash = fnv(hash, root.relativize(path).toString().replace('\\', '/'));
+                hash = fnv(hash, Long.toString(attrs.size()));
+                hash = fnv(hash, Long.toString(attrs.lastModifiedTime().toMillis()));
+            }
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** @return Number of images in the cache */
+    public int size() {
+        return count;
+    }
+
+    /** @return Number of label classes (10 for MNIST) */
+    public int numClasses() {
+        return numClasses;
+    }
+
+    /** @return The backing file */
+    @NotNull
+    public File file() {
+        return file;
+    }
+
+    /** @return The label index of the given example */
+    public int label(int example) {
+        return buffer.get(count * PIXELS + example);
+    }
+
+    /**
+     * Copies the raw 0..255 pixels of one example into {@code dest} as floats.
+     * @param example Example index
+     * @param scratch Reusable byte buffer of at least {@link #PIXELS} length
+     * @param dest    Destination array
+     * @param offset  Offset into {@code dest}
+     */
+    public void copyPixels(int example, byte[] scratch, float[] dest, int offset) {
+        buffer.get(example * PIXELS, scratch, 0, PIXELS);
+        for (int p = 0; p < PIXELS; p++) {
+            dest[offset + p] = scratch[p] & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ModelSnapshot
+ * Inference-only copy of a trained model laid out for fast startup: the
+ * network config, the normalizer's affine transform and one flat, aligned
+ * buffer of FP32 parameters in native (little-endian) byte order.
+ *
+ * Loading memory-maps the file and binds the network's parameters directly to
+ * the mapped pages, so there is no unzip, no updater state and no parameter
+ * copy; the OS pages weights in as the first forward pass touches them.
+ * {@link InferenceEngine} replicas share that buffer, so serving the model
+ * does not copy the parameters either. The file is opened and mapped
+ * read-only, so it can live on a read-only volume; in turn the network's
+ * parameters are read-only memory, and the network must never be trained or
+ * have its parameters changed (doing so would crash the JVM).
+ *
+ * File layout (little-endian):
+ * <pre>
+ *   int   magic ("MNSP")     int   version
+ *   float normalizer scale   float normalizer offset
+ *   long  parameter count    int   config length
+ *   byte[] config JSON (UTF-8), zero-padded to a multiple of 64 bytes
+ *   float[parameter count] parameters, in MultiLayerNetwork.params() order
+ * </pre>
+ * There is no checksum: verifying one would read every page up front.
+ * The file size is checked against the header instead.
+ */
+public final class ModelSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(ModelSnapshot.class);
+
+    private static final int MAGIC = 0x4D4E5350; // "MNSP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + 2 * Float.BYTES + Long.BYTES;
+    private static final int ALIGNMENT = 64;
+
+    private final MultiLayerNetwork network;
+    private final DataNormalization normalizer;
+    private final ByteBuffer mapping; // Backs the network's parameters; must stay reachable as long as the network
+
+    private ModelSnapshot(MultiLayerNetwork network, DataNormalization normalizer, ByteBuffer mapping) {
+        this.network = network;
+        this.normalizer = normalizer;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Writes a snapshot of a trained network. The file is written to a temporary
+     * name and renamed into place.
+     * @param model      Trained network
+     * @param normalizer Normalizer the network was trained with; must scale every pixel the same way
+     * @param target     Snapshot to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(@NotNull MultiLayerNetwork model, @NotNull DataNormalization normalizer,
+                             @NotNull File target) throws IOException {
+        CanvasPreprocessor affine = CanvasPreprocessor.forNormalizer(normalizer);
+        byte[] config = model.getLayerWiseConfigurations().toJson().getBytes(StandardCharsets.UTF_8);
+        float[] params = model.params().castTo(DataType.FLOAT).data().asFloat();
+        int paramsOffset = paramsOffset(config.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(paramsOffset + params.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putFloat(affine.getScale())
+                .putFloat(affine.getOffset())
+                .putLong(params.length)
+                .putInt(config.length)
+                .put(config);
+        buffer.position(paramsOffset);
+        buffer.asFloatBuffer().put(params);
+
+        Path path = target.toPath().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), target.getName(), ".tmp");
+        try {
+            Files.write(tmp, buffer.array());
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote model snapshot {} ({} parameters)", path, params.length);
+    }
+
+    /**
+     * Maps a snapshot and builds a network whose parameters live in the mapping.
+     * @param file Snapshot written by {@link #write}
+     * @return The mapped model
+     * @throws IOException If the file is truncated or has a bad header
+     */
+    @NotNull
+    public static ModelSnapshot map(@NotNull File file) throws IOException {
+        // Read-only, so the snapshot can be served from a read-only file system or by a user who cannot write it
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Model snapshot is truncated: " + file.getAbsolutePath());
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                throw new IOException("Not a model snapshot (bad magic/version): " + file.getAbsolutePath());
+            }
+            float scale = mapped.getFloat(8);
+            float offset = mapped.getFloat(12);
+            long numParams = mapped.getLong(16);
+            int configLength = mapped.getInt(24);
+            int paramsOffset = paramsOffset(configLength);
+            if (channel.size() != paramsOffset + numParams * Float.BYTES) {
+                throw new IOException("Model snapshot size does not match its header: " + file.getAbsolutePath());
+            }
+            byte[] config = new byte[configLength];
+            mapped.get(HEADER_BYTES, config);
+
+            MultiLayerNetwork network = new MultiLayerNetwork(
+                    MultiLayerConfiguration.fromJson(new String(config, StandardCharsets.UTF_8)));
+            ByteBuffer paramBytes = mapped.slice(paramsOffset, (int) (numParams * Float.BYTES)).order(ByteOrder.nativeOrder());
+            INDArray params;
+            if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+                // Zero-copy: an ND4J buffer over the mapped pages
+                FloatPointer pointer = new FloatPointer(paramBytes.asFloatBuffer());
+                DataBuffer data = Nd4j.createBuffer(pointer, DataType.FLOAT, numParams, FloatIndexer.create(pointer));
+                params = Nd4j.create(data, new long[]{1, numParams});
+            } else {
+                float[] values = new float[(int) numParams];
+                paramBytes.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+                params = Nd4j.create(values, new long[]{1, numParams}, 'c');
+            }
+            network.init(params, false);
+            // Inverse of CanvasPreprocessor.forNormalizer: x / 255 * (max - min) + min
+            DataNormalization normalizer = new ImagePreProcessingScaler(offset, offset + 255.0 * scale);
+            return new ModelSnapshot(network, normalizer, mapped);
+        }
+    }
+
+    /** Parameters start at the first {@link #ALIGNMENT}-byte boundary after the config. */
+    private static int paramsOffset(int configLength) {
+        int end = HEADER_BYTES + configLength;
+        return (end + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /** @return The network, with parameters backed by the read-only mapping; for inference only */
+    @NotNull
+    public MultiLayerNetwork getNetwork() {
+        return network;
+    }
+
+    /** @return The normalizer the network was trained with */
+    @NotNull
+    public DataNormalization getNormalizer() {
+        return normalizer;
+    }
+
+    /** @return Size in bytes of the mapped file */
+    public long getMappedBytes() {
+        return mapping.capacity();
+    }
+}
@@ -0,0 +1,152 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PerfMetrics
+ * Process-wide registry of performance metrics: latency histograms, counters
+ * and gauges, looked up by name. Recording is lock-free (see
+ * {@link LatencyHistogram}), so instrumentation can stay on in production.
+ *
+ * {@link #prometheusText()} renders everything in the Prometheus text
+ * exposition format (histograms in seconds), for the inference server's
+ * {@code /metrics} endpoint; {@link #startPeriodicLog(long, TimeUnit)} writes
+ * a summary of the histograms to the log at a fixed rate.
+ */
+public final class PerfMetrics {
+    private static final Logger log = LoggerFactory.getLogger(PerfMetrics.class);
+
+    // Sorted by name, so the exported text is stable between scrapes
+    private static final Map<String, Metric<LatencyHistogram>> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, Metric<LongAdder>> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Metric<Gauge>> gauges = new ConcurrentSkipListMap<>();
+
+    private record Metric<T>(String help, T value) {}
+
+    /** A value that is set rather than accumulated, e.g. the latest throughput. */
+    public static final class Gauge {
+        private volatile double value;
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double get() {
+            return value;
+        }
+    }
+
+    private PerfMetrics() {
+    }
+
+    /**
+     * @param name Metric name without unit suffix, e.g. {@code predict_output}; exported as {@code <name>_seconds}
+     * @param help One-line description
+     * @return The histogram registered under {@code name}, created on first use
+     */
+    @NotNull
+    public static LatencyHistogram histogram(@NotNull String name, @NotNull String help) {
+        return histograms.computeIfAbsent(name, n -> new Metric<>(help, new LatencyHistogram())).value();
+    }
+
+    /**
+     * @param name Metric name without the {@code _total} suffix
+     * @param help One-line description
+     * @return The counter registered under {@code name}, created on first use
+     */
+    @NotNull
+    public static LongAdder counter(@NotNull String name, @NotNull String help) {
+        return counters.computeIfAbsent(name, n -> new Metric<>(help, new LongAdder())).value();
+    }
+
+    /**
+     * @param name Metric name
+     * @param help One-line description
+     * @return The gauge registered under {@code name}, created on first use
+     */
+    @NotNull
+    public static Gauge gauge(@NotNull String name, @NotNull String help) {
+        return gauges.computeIfAbsent(name, n -> new Metric<>(help, new Gauge())).value();
+    }
+
+    /** @return Every metric in the Prometheus text exposition format */
+    @NotNull
+    public static String prometheusText() {
+        StringBuilder out = new StringBuilder();
+        histograms.forEach((name, metric) -> {
+            String full = name + "_seconds";
+            LatencyHistogram h = metric.value();
+            header(out, full, metric.help(), "histogram");
+            long cumulative = 0;
+            for (int i = 0; i < h.getBucketCount() - 1; i++) {
+                cumulative += h.getCountInBucket(i);
+                out.append(String.format(Locale.ROOT, "%s_bucket{le=\"%s\"} %d\n",
+                        full, Double.toString(h.bucketUpperBoundMicros(i) / 1e6), cumulative));
+            }
+            // Buckets are incremented before the total, so never report fewer in total than in the buckets
+            long count = Math.max(cumulative, h.getCount());
+            out.append(String.format(Locale.ROOT, "%s_bucket{le=\"+Inf\"} %d\n", full, count));
+            out.append(String.format(Locale.ROOT, "%s_sum %.9f\n", full, h.getSumNanos() / 1e9));
+            out.append(String.format(Locale.ROOT, "%s_count %d\n", full, count));
+        });
+        counters.forEach((name, metric) -> {
+            header(out, name + "_total", metric.help(), "counter");
+            out.append(String.format(Locale.ROOT, "%s_total %d\n", name, metric.value().sum()));
+        });
+        gauges.forEach((name, metric) -> {
+            header(out, name, metric.help(), "gauge");
+            out.append(String.format(Locale.ROOT, "%s %s\n", name, Double.toString(metric.value().get())));
+        });
+        return out.toString();
+    }
+
+    /** Appends the {@code # HELP} and {@code # TYPE} lines that precede a metric's samples. */
+    static void header(@NotNull StringBuilder out, @NotNull String name, @NotNull String help, @NotNull String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /** @return One line per gauge and per histogram that has observations, e.g. {@code predict_output: n=12 mean=3.10ms ...} */
+    @NotNull
+    public static String summary() {
+        StringBuilder out = new StringBuilder();
+        histograms.forEach((name, metric) -> {
+            if (metric.value().getCount() > 0) {
+                out.append(name).append(": ").append(metric.value().summary()).append('\n');
+            }
+        });
+        gauges.forEach((name, metric) -> out.append(name).append(": ")
+                .append(String.format(Locale.ROOT, "%.2f", metric.value().get())).append('\n'));
+        return out.toString();
+    }
+
+    /**
+     * Logs {@link #summary()} at a fixed rate on a daemon thread.
+     * @return Handle to cancel the logging
+     */
+    @NotNull
+    public static ScheduledFuture<?> startPeriodicLog(long period, @NotNull TimeUnit unit) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "perf-metrics-log");
+            t.setDaemon(true);
+            return t;
+        });
+        return scheduler.scheduleAtFixedRate(() -> {
+            String summary = summary();
+            if (!summary.isEmpty()) {
+                log.info("Performance summary:\n{}", summary.stripTrailing());
+            }
+        }, period, period, unit);
+    }
+}
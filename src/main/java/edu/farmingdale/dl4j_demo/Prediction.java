@@ -0,0 +1,49 @@
+package edu.farmingdale.dl4j_demo;
+
+/**
+ * Prediction
+ * The result of classifying one image.
+ * @param digit         The most likely digit (0-9)
+ * @param probabilities Softmax output, one probability per digit
+ */
+public record Prediction(int digit, float[] probabilities) {
+
+    /**
+     * Builds a prediction from one row of softmax output.
+     */
+    public static Prediction fromProbabilities(float[] probabilities) {
+        int best = 0;
+        for (int i = 1; i < probabilities.length; i++) {
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+        return new Prediction(best, probabilities);
+    }
+
+    /**
+     * @param k Number of digits to return
+     * @return The {@code k} most likely digits, most likely first
+     */
+    public int[] top(int k) {
+        int n = Math.min(k, probabilities.length);
+        int[] best = new int[n];
+        boolean[] taken = new boolean[probabilities.length];
+        for (int i = 0; i < n; i++) {
+            int pick = -1;
+            for (int d = 0; d < probabilities.length; d++) {
+                if (!taken[d] && (pick < 0 || probabilities[d] > probabilities[pick])) {
+                    pick = d;
+                }
+            }
+            taken[pick] = true;
+            best[i] = pick;
+        }
+        return best;
+    }
+
+    /** @return Probability of the predicted digit */
+    public float confidence() {
+        return probabilities[digit];
+    }
+}
@@ -0,0 +1,254 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PrefetchDataSetIterator
+ * Loads and normalizes upcoming minibatches on a pool of worker threads while
+ * the network trains on the current one, so ND4J never waits on data loading
+ * (and the workers never wait on ND4J).
+ *
+ * Minibatches are handed out strictly in batch-index order, so the sequence a
+ * model sees is identical to the single-threaded {@link CachedMnistDataSetIterator}
+ * for the same seed. At most {@code queueCapacity} batches are loaded ahead.
+ *
+ * The pre-processor (e.g. {@code ImagePreProcessingScaler}) runs on the
+ * workers, so it must be thread-safe.
+ */
+public class PrefetchDataSetIterator implements DataSetIterator, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PrefetchDataSetIterator.class);
+    private static final AtomicInteger POOL_ID = new AtomicInteger();
+
+    private final CachedMnistDataSetIterator source;
+    private final ExecutorService workers;
+    private final int queueCapacity;
+    private final ArrayDeque<Future<DataSet>> pending = new ArrayDeque<>(); // In batch-index order
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[MnistBinaryCache.PIXELS]);
+    private volatile DataSetPreProcessor preProcessor;
+    private int nextToSubmit;
+    private int numBatches;
+
+    // Pipeline counters (consumer thread only)
+    private long batchesServed;
+    private long readyDepthSum;
+    private long stallNanos;
+
+    /**
+     * @param source        Iterator whose minibatches are loaded in the background; it must not be used directly afterwards
+     * @param workerCount   Number of loader threads
+     * @param queueCapacity Maximum number of minibatches loaded ahead of the consumer
+     */
+    public PrefetchDataSetIterator(@NotNull CachedMnistDataSetIterator source, int workerCount, int queueCapacity) {
+        if (workerCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Worker count and queue capacity must be positive");
+        }
+        this.source = source;
+        this.queueCapacity = queueCapacity;
+        this.numBatches = source.numBatches();
+        int poolId = POOL_ID.incrementAndGet();
+        AtomicInteger threadId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "mnist-prefetch-" + poolId + "-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Keeps up to {@link #queueCapacity} minibatches in flight. */
+    private void fill() {
+        while (pending.size() < queueCapacity && nextToSubmit < numBatches) {
+            final int index = nextToSubmit++;
+            pending.add(workers.submit(() -> {
+                DataSet ds = source.loadBatch(index, scratch.get());
+                DataSetPreProcessor pp = preProcessor;
+                if (pp != null) {
+                    pp.preProcess(ds);
+                }
+                return ds;
+            }));
+        }
+    }
+
+    @Override
+    public DataSet next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Epoch exhausted; call reset()");
+        }
+        fill();
+        readyDepthSum += pending.stream().filter(Future::isDone).count();
+        Future<DataSet> head = pending.poll();
+        long start = System.nanoTime();
+        try {
+            DataSet ds = head.get();
+            stallNanos += System.nanoTime() - start;
+            batchesServed++;
+            fill();
+            return ds;
+        } catch (ExecutionException e) {
+            drainPending();
+            throw new IllegalStateException("Minibatch loading failed", e.getCause());
+        } catch (InterruptedException e) {
+            drainPending();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next minibatch", e);
+        }
+    }
+
+    /**
+     * Only whole minibatches of the configured size can be prefetched.
+     */
+    @Override
+    public DataSet next(int num) {
+        if (num != batch()) {
+            throw new UnsupportedOperationException("Prefetching only supports next(" + batch() + ")");
+        }
+        return next();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !pending.isEmpty() || nextToSubmit < numBatches;
+    }
+
+    /**
+     * Cancels outstanding loads, waits for any already running to finish,
+     * then starts the source's next epoch.
+     */
+    @Override
+    public void reset() {
+        drainPending();
+        source.reset();
+        numBatches = source.numBatches();
+        nextToSubmit = 0;
+    }
+
+    /**
+     * Jumps to a position, e.g. when resuming from a checkpoint.
+     * @param epoch Epoch number of the source's shuffle
+     * @param batch Minibatches to skip
+     * @see CachedMnistDataSetIterator#seek(int, int)
+     */
+    public void seek(int epoch, int batch) {
+        drainPending();
+        source.seek(epoch, 0);
+        numBatches = source.numBatches();
+        nextToSubmit = Math.min(batch, numBatches);
+    }
+
+    /**
+     * Cancels queued loads and waits for running ones, so no worker is still
+     * reading the source's epoch order when it changes.
+     */
+    private void drainPending() {
+        Future<DataSet> f;
+        while ((f = pending.poll()) != null) {
+            if (!f.cancel(false)) {
+                try {
+                    f.get();
+                } catch (ExecutionException | CancellationException ignored) {
+                    // The failure has already been (or will never be) reported to the consumer
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        nextToSubmit = numBatches;
+    }
+
+    /**
+     * Stops the worker threads. The iterator cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        drainPending();
+        workers.shutdownNow();
+        log.debug("Prefetch pipeline closed after {} batches", batchesServed);
+    }
+
+    /** @return Minibatches handed to the consumer since the last {@link #resetStats()} */
+    public long getBatchesServed() {
+        return batchesServed;
+    }
+
+    /** @return Average number of already-loaded minibatches waiting when the consumer asked for the next one */
+    public double getAverageReadyDepth() {
+        return batchesServed == 0 ? 0 : (double) readyDepthSum / batchesServed;
+    }
+
+    /** @return Total time the consumer spent blocked waiting on a minibatch, in milliseconds */
+    public long getStallMillis() {
+        return stallNanos / 1_000_000;
+    }
+
+    /** @return The configured look-ahead */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** Clears the pipeline counters, e.g. at the start of an epoch. */
+    public void resetStats() {
+        batchesServed = 0;
+        readyDepthSum = 0;
+        stallNanos = 0;
+    }
+
+    @Override
+    public int inputColumns() {
+        return source.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return source.totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    /**
+     * Already asynchronous; stops DL4J from wrapping it in another prefetch thread.
+     */
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    @Override
+    public int batch() {
+        return source.batch();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return source.getLabels();
+    }
+}
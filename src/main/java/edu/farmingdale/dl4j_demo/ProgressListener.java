@@ -0,0 +1,80 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ProgressListener
+ * Reports a {@link TrainingProgress} sample every {@code frequency} iterations:
+ * the current score and the examples per second trained since the last sample.
+ *
+ * The examples are counted from the input of each forward pass, so a smaller
+ * final minibatch is counted correctly. Not thread-safe: attach it to a single
+ * training thread. In data-parallel mode it sees the first replica only, and
+ * each of its minibatches stands for one per replica trained in lockstep, so
+ * the count is scaled by the number of replicas.
+ */
+public class ProgressListener extends BaseTrainingListener {
+    private final int frequency;
+    private final Consumer<TrainingProgress> progressConsumer;
+    private final int replicas;
+    private long examples;   // Examples trained since the last sample
+    private long lastSample; // Time of the last sample (0 = none yet)
+
+    /**
+     * @param frequency        Iterations between samples
+     * @param progressConsumer Receives the samples, on the training thread
+     */
+    public ProgressListener(int frequency, @NotNull Consumer<TrainingProgress> progressConsumer) {
+        this(frequency, 1, progressConsumer);
+    }
+
+    /**
+     * @param frequency        Iterations between samples
+     * @param replicas         Data-parallel replicas training alongside the observed one (1 = ordinary training)
+     * @param progressConsumer Receives the samples, on the training thread
+     */
+    public ProgressListener(int frequency, int replicas, @NotNull Consumer<TrainingProgress> progressConsumer) {
+        if (frequency <= 0 || replicas <= 0) {
+            throw new IllegalArgumentException("Frequency and replica count must be positive: " + frequency + ", " + replicas);
+        }
+        this.frequency = frequency;
+        this.replicas = replicas;
+        this.progressConsumer = progressConsumer;
+    }
+
+    @Override
+    public void onEpochStart(Model model) {
+        // Restart the measurement so time spent evaluating between epochs is not counted
+        examples = 0;
+        lastSample = 0;
+    }
+
+    @Override
+    public void onForwardPass(Model model, List<INDArray> activations) {
+        if (lastSample == 0) {
+            lastSample = System.nanoTime(); // First step of the run: throughput is measured from here
+        }
+        if (!activations.isEmpty()) {
+            examples += activations.get(0).size(0) * replicas;
+        }
+    }
+
+    @Override
+    public void iterationDone(Model model, int iteration, int epoch) {
+        if (iteration % frequency != 0 || lastSample == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        double seconds = (now - lastSample) / 1e9;
+        progressConsumer.accept(new TrainingProgress(epoch, iteration, model.score(),
+                seconds > 0 ? examples / seconds : 0.0));
+        examples = 0;
+        lastSample = now;
+    }
+}
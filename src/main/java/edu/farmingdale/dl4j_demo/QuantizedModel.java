@@ -0,0 +1,384 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.dataset.api.preprocessor.serializer.NormalizerType;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * QuantizedModel
+ * Inference-only export of a trained network with reduced-precision weights.
+ *
+ * In {@link Precision#INT8} mode every weight matrix is quantized symmetrically
+ * per output channel (one float scale per conv filter / dense unit); in
+ * {@link Precision#FP16} mode weights are stored as half floats. Biases stay
+ * FP32 either way. No updater state is stored, only the configuration, the
+ * normalizer and the parameters. The normalizer is recorded by type and
+ * settings, so only {@link ImagePreProcessingScaler} (the one the app trains
+ * with) is supported; exporting with any other normalizer is rejected.
+ *
+ * INT8 export is calibrated: for each weight matrix in turn, several clipping
+ * ranges are tried and the one whose quantized network best matches the FP32
+ * softmax outputs on a calibration sample is kept. Clipping a few outlier
+ * weights buys finer resolution for all the others.
+ *
+ * ND4J has no int8 kernels on the CPU backend, so weights are dequantized when
+ * the artifact is loaded and the network runs in FP32 (or FP16 on request; on
+ * the CPU backend FP16 math is several times slower than FP32, so that only
+ * pays off on GPU backends). The gains on CPU are the smaller artifact and
+ * faster loading, which leaves room for more replicas per node.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int  magic ("MNQZ")      int  version
+ *   byte precision
+ *   UTF  normalizer type ("IMAGE_MIN_MAX")
+ *   double min range         double max range          double max pixel value
+ *   int  config length       byte[] config JSON (UTF-8)
+ *   int  block count, then per parameter block:
+ *     UTF name   int rank   long[rank] shape   byte encoding
+ *     FP32: float[n]   FP16: short[n]   INT8: int channel axis, int channels, float[channels] scales, byte[n]
+ *   long CRC32 of everything above
+ * </pre>
+ */
+public final class QuantizedModel {
+    private static final Logger log = LoggerFactory.getLogger(QuantizedModel.class);
+
+    private static final int MAGIC = 0x4D4E515A; // "MNQZ"
+    private static final int VERSION = 2;
+    private static final byte ENCODING_FP32 = 0, ENCODING_FP16 = 1, ENCODING_INT8 = 2;
+    private static final float[] CLIP_CANDIDATES = {1.0f, 0.95f, 0.9f, 0.85f, 0.8f};
+
+    /** Weight storage precision. */
+    public enum Precision { INT8, FP16 }
+
+    private final MultiLayerNetwork network;
+    private final DataNormalization normalizer;
+    private final Precision precision;
+
+    private QuantizedModel(MultiLayerNetwork network, DataNormalization normalizer, Precision precision) {
+        this.network = network;
+        this.normalizer = normalizer;
+        this.precision = precision;
+    }
+
+    /** @return Default artifact location for a precision, next to {@code mnist-model.zip} */
+    @NotNull
+    public static File defaultFile(@NotNull Precision precision) {
+        return new File("mnist-model-" + precision.name().toLowerCase() + ".bin");
+    }
+
+    /**
+     * Quantizes a trained network and writes the inference artifact.
+     * The file is written to a temporary name and renamed into place.
+     * @param model       Trained FP32 network (not modified)
+     * @param normalizer  Normalizer the network was trained with; must be an {@link ImagePreProcessingScaler}
+     * @param precision   Weight storage precision
+     * @param calibration Normalized sample inputs used to pick INT8 clipping ranges (ignored for FP16)
+     * @param target      Artifact to write
+     * @throws IOException If the file cannot be written
+     * @throws IllegalArgumentException If the normalizer is not an {@link ImagePreProcessingScaler}
+     */
+    public static void export(@NotNull MultiLayerNetwork model, @NotNull DataNormalization normalizer,
+                              @NotNull Precision precision, @NotNull INDArray calibration,
+                              @NotNull File target) throws IOException {
+        if (!(normalizer instanceof ImagePreProcessingScaler scaler)) {
+            throw new IllegalArgumentException("Only " + NormalizerType.IMAGE_MIN_MAX + " normalizers can be exported, not "
+                    + normalizer.getType());
+        }
+        byte[] config = model.getLayerWiseConfigurations().toJson().getBytes(StandardCharsets.UTF_8);
+
+        // Every block in paramTable() order; weights quantized, biases kept as they are
+        Map<String, INDArray> params = model.paramTable();
+        Map<String, Float> clips = precision == Precision.INT8
+                ? calibrate(model, calibration)
+                : Map.of();
+
+        Path path = target.toPath().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), target.getName(), ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(precision.ordinal());
+            out.writeUTF(scaler.getType().name());
+            out.writeDouble(scaler.getMinRange());
+            out.writeDouble(scaler.getMaxRange());
+            out.writeDouble(scaler.getMaxPixelVal()); // maxBits is only kept as this (2^bits - 1)
+            out.writeInt(config.length);
+            out.write(config);
+            out.writeInt(params.size());
+            for (Map.Entry<String, INDArray> entry : params.entrySet()) {
+                String name = entry.getKey();
+                INDArray param = entry.getValue();
+                float[] values = param.dup('c').data().asFloat();
+                out.writeUTF(name);
+                out.writeInt(param.rank());
+                for (long dim : param.shape()) {
+                    out.writeLong(dim);
+                }
+                if (!isWeight(name, param)) {
+                    out.writeByte(ENCODING_FP32);
+                    for (float v : values) out.writeFloat(v);
+                } else if (precision == Precision.FP16) {
+                    out.writeByte(ENCODING_FP16);
+                    for (float v : values) out.writeShort(Float.floatToFloat16(v));
+                } else {
+                    Int8Block block = Int8Block.quantize(param, values, clips.get(name));
+                    out.writeByte(ENCODING_INT8);
+                    out.writeInt(block.axis);
+                    out.writeInt(block.scales.length);
+                    for (float s : block.scales) out.writeFloat(s);
+                    out.write(block.values);
+                }
+            }
+            out.flush();
+            // The checksum itself is written outside the checked stream
+            new DataOutputStream(fileOut).writeLong(crc.getValue());
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote {} model {} ({} bytes)", precision, path, Files.size(path));
+    }
+
+    /**
+     * Reads an artifact and rebuilds the network with dequantized weights.
+     * @param file        Artifact written by {@link #export}
+     * @param computeType {@link DataType#FLOAT}, or {@link DataType#HALF} to also run the network in half precision
+     * @return The loaded model
+     * @throws IOException If the file is truncated, has a bad header, an unsupported normalizer or fails the checksum
+     */
+    @NotNull
+    public static QuantizedModel load(@NotNull File file, @NotNull DataType computeType) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16);
+             DataInputStream in = new DataInputStream(new CheckedInputStream(fileIn, crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a quantized model (bad magic): " + file.getAbsolutePath());
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported quantized model version " + version + " (expected " + VERSION
+                        + "), re-export it: " + file.getAbsolutePath());
+            }
+            Precision precision = Precision.values()[in.readByte()];
+            String normalizerType = in.readUTF();
+            if (!normalizerType.equals(NormalizerType.IMAGE_MIN_MAX.name())) {
+                throw new IOException("Unsupported normalizer " + normalizerType + " in " + file.getAbsolutePath());
+            }
+            double minRange = in.readDouble();
+            double maxRange = in.readDouble();
+            double maxPixelVal = in.readDouble();
+            byte[] config = new byte[in.readInt()];
+            in.readFully(config);
+
+            MultiLayerNetwork network = new MultiLayerNetwork(
+                    MultiLayerConfiguration.fromJson(new String(config, StandardCharsets.UTF_8)));
+            network.init();
+            int blocks = in.readInt();
+            for (int b = 0; b < blocks; b++) {
+                String name = in.readUTF();
+                long[] shape = new long[in.readInt()];
+                for (int i = 0; i < shape.length; i++) {
+                    shape[i] = in.readLong();
+                }
+                float[] values = new float[(int) Arrays.stream(shape).reduce(1, (x, y) -> x * y)];
+                byte encoding = in.readByte();
+                switch (encoding) {
+                    case ENCODING_FP32 -> {
+                        for (int i = 0; i < values.length; i++) values[i] = in.readFloat();
+                    }
+                    case ENCODING_FP16 -> {
+                        for (int i = 0; i < values.length; i++) values[i] = Float.float16ToFloat(in.readShort());
+                    }
+                    case ENCODING_INT8 -> {
+                        int axis = in.readInt();
+                        float[] scales = new float[in.readInt()];
+                        for (int c = 0; c < scales.length; c++) scales[c] = in.readFloat();
+                        byte[] q = new byte[values.length];
+                        in.readFully(q);
+                        Int8Block.dequantize(shape, axis, scales, q, values);
+                    }
+                    default -> throw new IOException("Unknown parameter encoding " + encoding + " in " + file.getAbsolutePath());
+                }
+                network.setParam(name, Nd4j.create(values, shape, 'c'));
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(fileIn).readLong() != expected) {
+                throw new IOException("Quantized model checksum mismatch: " + file.getAbsolutePath());
+            }
+            if (computeType != DataType.FLOAT) {
+                network = network.convertDataType(computeType);
+            }
+            ImagePreProcessingScaler normalizer = new ImagePreProcessingScaler(minRange, maxRange);
+            normalizer.setMaxPixelVal(maxPixelVal);
+            return new QuantizedModel(network, normalizer, precision);
+        }
+    }
+
+    /** @return The network with dequantized weights */
+    @NotNull
+    public MultiLayerNetwork getNetwork() {
+        return network;
+    }
+
+    /** @return The normalizer the network was trained with */
+    @NotNull
+    public DataNormalization getNormalizer() {
+        return normalizer;
+    }
+
+    /** @return Precision the weights were stored with */
+    @NotNull
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @param replicaCount Number of independent replicas
+     * @return An inference engine serving this model
+     */
+    @NotNull
+    public InferenceEngine newEngine(int replicaCount) {
+        return new InferenceEngine(network, normalizer, replicaCount);
+    }
+
+    /** Conv kernels [nOut, nIn, kH, kW] and dense weights [nIn, nOut]; everything else (biases) stays FP32. */
+    private static boolean isWeight(String name, INDArray param) {
+        return name.endsWith("_W") && param.rank() >= 2;
+    }
+
+    /**
+     * Greedily picks a clipping ratio per weight matrix: with earlier matrices
+     * already quantized, each candidate is tried on a copy of the network and
+     * the one with the lowest squared error against the FP32 outputs is kept.
+     */
+    private static Map<String, Float> calibrate(MultiLayerNetwork model, INDArray calibration) {
+        INDArray reference = model.output(calibration);
+        MultiLayerNetwork trial = model.clone();
+        Map<String, Float> chosen = new HashMap<>();
+        for (Map.Entry<String, INDArray> entry : model.paramTable().entrySet()) {
+            String name = entry.getKey();
+            INDArray param = entry.getValue();
+            if (!isWeight(name, param)) {
+                continue;
+            }
+            float[] values = param.dup('c').data().asFloat();
+            float bestClip = 1.0f;
+            double bestError = Double.MAX_VALUE;
+            INDArray bestWeights = null;
+            for (float clip : CLIP_CANDIDATES) {
+                INDArray weights = Int8Block.quantize(param, values, clip).dequantized(param.shape());
+                trial.setParam(name, weights);
+                double error = trial.output(calibration).squaredDistance(reference);
+                if (error < bestError) {
+                    bestError = error;
+                    bestClip = clip;
+                    bestWeights = weights;
+                }
+            }
+            trial.setParam(name, bestWeights);
+            chosen.put(name, bestClip);
+            log.info("Calibrated {}: clip at {}% of max |w| (squared error {})", name, Math.round(bestClip * 100), bestError);
+        }
+        return chosen;
+    }
+
+    /** Symmetric per-channel int8 quantization of one weight array. */
+    private static final class Int8Block {
+        final int axis;
+        final float[] scales;
+        final byte[] values;
+
+        private Int8Block(int axis, float[] scales, byte[] values) {
+            this.axis = axis;
+            this.scales = scales;
+            this.values = values;
+        }
+
+        /**
+         * @param param  Weight array, used for its shape
+         * @param values Its values in 'c' order
+         * @param clip   Fraction of each channel's max |w| mapped to 127; larger weights saturate
+         */
+        static Int8Block quantize(INDArray param, float[] values, float clip) {
+            long[] shape = param.shape();
+            int axis = channelAxis(shape);
+            int channels = (int) shape[axis];
+            int stride = stride(shape, axis);
+            float[] maxAbs = new float[channels];
+            for (int i = 0; i < values.length; i++) {
+                int c = (i / stride) % channels;
+                maxAbs[c] = Math.max(maxAbs[c], Math.abs(values[i]));
+            }
+            float[] scales = new float[channels];
+            for (int c = 0; c < channels; c++) {
+                scales[c] = maxAbs[c] == 0 ? 1.0f : maxAbs[c] * clip / 127.0f;
+            }
+            byte[] q = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                int c = (i / stride) % channels;
+                q[i] = (byte) Math.max(-127, Math.min(127, Math.round(values[i] / scales[c])));
+            }
+            return new Int8Block(axis, scales, q);
+        }
+
+        INDArray dequantized(long[] shape) {
+            float[] out = new float[values.length];
+            dequantize(shape, axis, scales, values, out);
+            return Nd4j.create(out, shape, 'c');
+        }
+
+        static void dequantize(long[] shape, int axis, float[] scales, byte[] q, float[] out) {
+            int channels = scales.length;
+            int stride = stride(shape, axis);
+            for (int i = 0; i < q.length; i++) {
+                out[i] = q[i] * scales[(i / stride) % channels];
+            }
+        }
+
+        /** Output channels: dimension 0 of a conv kernel, dimension 1 of a dense weight matrix. */
+        private static int channelAxis(long[] shape) {
+            return shape.length == 4 ? 0 : 1;
+        }
+
+        /** Distance in a 'c'-order array between consecutive indices along {@code axis}. */
+        private static int stride(long[] shape, int axis) {
+            long stride = 1;
+            for (int d = axis + 1; d < shape.length; d++) {
+                stride *= shape[d];
+            }
+            return (int) stride;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.optimize.api.BaseTrainingListener;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.jetbrains.annotations.NotNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StepTimingListener
+ * Splits every training step into data wait, forward, backward and update time
+ * using the hooks DL4J already calls on each {@code fit} step, so it costs a
+ * few {@code System.nanoTime()} calls per step.
+ *
+ * Other listeners wrapped with {@link #timed(TrainingListener)} are timed as
+ * telemetry overhead and excluded from the phase they run in, so the report
+ * shows exactly what logging and stats collection cost as a share of step time.
+ *
+ * Every step is also recorded in the {@link PerfMetrics} histograms
+ * {@code training_etl_wait} and {@code training_compute}, and the examples it
+ * trained in the {@code training_examples} counter.
+ *
+ * Register this listener after the ones it wraps. Data wait comes from
+ * {@link MultiLayerNetwork#getLastEtlTime()}, which DL4J reports in whole
+ * milliseconds. Not thread-safe: attach it to a single training thread.
+ */
+public class StepTimingListener extends BaseTrainingListener {
+    private static final LatencyHistogram ETL_WAIT = PerfMetrics.histogram("training_etl_wait",
+            "Time each training step waited for its minibatch");
+    private static final LatencyHistogram COMPUTE = PerfMetrics.histogram("training_compute",
+            "Forward, backward and update time of each training step, excluding telemetry");
+    private static final LongAdder EXAMPLES = PerfMetrics.counter("training_examples", "Examples trained");
+
+    private long mark;             // End of the last measured phase
+    private long telemetryInPhase; // Time wrapped listeners spent inside the current phase
+    private boolean inStep;        // The current step's forward pass was measured
+    private long stepEtl;          // ETL wait of the current step
+    private long stepCompute;      // Forward + backward time of the current step so far
+
+    private long steps;
+    private long etlNanos;
+    private long forwardNanos;
+    private long backwardNanos;
+    private long updateNanos;
+    private long telemetryNanos;
+
+    /**
+     * Wraps a listener so the time spent in it is reported as telemetry overhead.
+     * @param delegate Listener to time
+     * @return A listener to register on the network in place of {@code delegate}
+     */
+    @NotNull
+    public TrainingListener timed(@NotNull TrainingListener delegate) {
+        return new Timed(delegate);
+    }
+
+    @Override
+    public void onEpochStart(Model model) {
+        startPhase(System.nanoTime());
+    }
+
+    @Override
+    public void onForwardPass(Model model, List<INDArray> activations) {
+        long now = System.nanoTime();
+        inStep = mark != 0;
+        if (inStep) {
+            // Everything since the last step ended: fetching the minibatch, then the forward pass
+            long elapsed = now - mark - telemetryInPhase;
+            long etl = model instanceof MultiLayerNetwork net ? Math.min(elapsed, net.getLastEtlTime() * 1_000_000L) : 0;
+            etlNanos += etl;
+            forwardNanos += elapsed - etl;
+            stepEtl = etl;
+            stepCompute = elapsed - etl;
+            if (!activations.isEmpty()) {
+                EXAMPLES.add(activations.get(0).size(0));
+            }
+        }
+        startPhase(now);
+    }
+
+    @Override
+    public void onBackwardPass(Model model) {
+        long now = System.nanoTime();
+        if (inStep) {
+            long elapsed = now - mark - telemetryInPhase;
+            backwardNanos += elapsed;
+            stepCompute += elapsed;
+        }
+        startPhase(now);
+    }
+
+    @Override
+    public void iterationDone(Model model, int iteration, int epoch) {
+        long now = System.nanoTime();
+        if (inStep) {
+            long elapsed = now - mark - telemetryInPhase;
+            updateNanos += elapsed;
+            steps++;
+            ETL_WAIT.record(stepEtl);
+            COMPUTE.record(stepCompute + elapsed);
+        }
+        inStep = false;
+        startPhase(now);
+    }
+
+    private void startPhase(long now) {
+        mark = now;
+        telemetryInPhase = 0;
+    }
+
+    /** Clears the accumulated timings, e.g. at the start of an epoch. */
+    public void reset() {
+        steps = etlNanos = forwardNanos = backwardNanos = updateNanos = telemetryNanos = 0;
+        mark = 0;
+        telemetryInPhase = 0;
+        inStep = false;
+    }
+
+    /** @return Number of steps measured since the last reset */
+    public long getSteps() {
+        return steps;
+    }
+
+    /** @return Telemetry time as a percentage of total step time since the last reset */
+    public double getTelemetryOverheadPercent() {
+        long total = etlNanos + forwardNanos + backwardNanos + updateNanos + telemetryNanos;
+        return total == 0 ? 0.0 : 100.0 * telemetryNanos / total;
+    }
+
+    /** @return One-line breakdown of the average step since the last reset */
+    @NotNull
+    public String summary() {
+        if (steps == 0) {
+            return "no steps measured";
+        }
+        double n = steps * 1e6;
+        return String.format("%d steps, per step: data %.2f ms, forward %.2f ms, backward %.2f ms, update %.2f ms, telemetry %.2f ms (%.1f%% of step time)",
+                steps, etlNanos / n, forwardNanos / n, backwardNanos / n, updateNanos / n, telemetryNanos / n,
+                getTelemetryOverheadPercent());
+    }
+
+    /** Forwards every callback to a delegate and charges the time to telemetry. */
+    private final class Timed implements TrainingListener {
+        private final TrainingListener delegate;
+
+        Timed(TrainingListener delegate) {
+            this.delegate = delegate;
+        }
+
+        private void charge(long start) {
+            long spent = System.nanoTime() - start;
+            telemetryNanos += spent;
+            telemetryInPhase += spent;
+        }
+
+        @Override
+        public void iterationDone(Model model, int iteration, int epoch) {
+            long start = System.nanoTime();
+            delegate.iterationDone(model, iteration, epoch);
+            charge(start);
+        }
+
+        @Override
+        public void onEpochStart(Model model) {
+            long start = System.nanoTime();
+            delegate.onEpochStart(model);
+            charge(start);
+        }
+
+        @Override
+        public void onEpochEnd(Model model) {
+            long start = System.nanoTime();
+            delegate.onEpochEnd(model);
+            charge(start);
+        }
+
+        @Override
+        public void onForwardPass(Model model, List<INDArray> activations) {
+            long start = System.nanoTime();
+            delegate.onForwardPass(model, activations);
+            charge(start);
+        }
+
+        @Override
+        public void onForwardPass(Model model, Map<String, INDArray> activations) {
+            long start = System.nanoTime();
+            delegate.onForwardPass(model, activations);
+            charge(start);
+        }
+
+        @Override
+        public void onGradientCalculation(Model model) {
+            long start = System.nanoTime();
+            delegate.onGradientCalculation(model);
+            charge(start);
+        }
+
+        @Override
+        public void onBackwardPass(Model model) {
+            long start = System.nanoTime();
+            delegate.onBackwardPass(model);
+            charge(start);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * StrokeRasterizer
+ * Builds the 28x28 ink grid of a drawing directly from its strokes, so live
+ * prediction does not need a canvas snapshot.
+ *
+ * Each stroke segment is a round-capped line (a capsule) in canvas coordinates.
+ * Every 28x28 cell is sampled on a {@value #SUB}x{@value #SUB} grid; a segment
+ * only visits the samples inside its bounding box, marks those within half a
+ * line width of it, and bumps the covered count of their cells. A cell's ink
+ * is then its covered fraction times 255, the same area average that
+ * {@link CanvasPreprocessor} computes from a snapshot of black strokes on white.
+ *
+ * Not thread-safe: strokes are added on the FX thread and {@link #copyInk}
+ * hands a copy to the prediction thread.
+ */
+public class StrokeRasterizer {
+    private static final int SIZE = CanvasPreprocessor.SIZE;
+    private static final int SUB = 4; // Samples per cell along each axis
+    private static final int GRID = SIZE * SUB;
+
+    private final double sampleWidth;  // Canvas units per sample
+    private final double sampleHeight;
+    private final boolean[] covered = new boolean[GRID * GRID];
+    private final int[] cellCounts = new int[SIZE * SIZE]; // Covered samples per cell
+    private int coveredSamples;
+
+    /**
+     * @param canvasWidth  Width of the drawing surface, in the units of the stroke coordinates
+     * @param canvasHeight Height of the drawing surface
+     */
+    public StrokeRasterizer(double canvasWidth, double canvasHeight) {
+        if (canvasWidth <= 0 || canvasHeight <= 0) {
+            throw new IllegalArgumentException("Canvas size must be positive: " + canvasWidth + "x" + canvasHeight);
+        }
+        this.sampleWidth = canvasWidth / GRID;
+        this.sampleHeight = canvasHeight / GRID;
+    }
+
+    /**
+     * Adds a round-capped segment from (x0, y0) to (x1, y1).
+     * @param lineWidth Stroke width in canvas units
+     */
+    public void addSegment(double x0, double y0, double x1, double y1, double lineWidth) {
+        double r = lineWidth / 2;
+        int minCol = Math.max(0, (int) Math.floor((Math.min(x0, x1) - r) / sampleWidth));
+        int maxCol = Math.min(GRID - 1, (int) Math.floor((Math.max(x0, x1) + r) / sampleWidth));
+        int minRow = Math.max(0, (int) Math.floor((Math.min(y0, y1) - r) / sampleHeight));
+        int maxRow = Math.min(GRID - 1, (int) Math.floor((Math.max(y0, y1) + r) / sampleHeight));
+
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double lengthSquared = dx * dx + dy * dy;
+        double rSquared = r * r;
+        for (int row = minRow; row <= maxRow; row++) {
+            double py = (row + 0.5) * sampleHeight;
+            for (int col = minCol; col <= maxCol; col++) {
+                int index = row * GRID + col;
+                if (covered[index]) {
+                    continue;
+                }
+                double px = (col + 0.5) * sampleWidth;
+                // Distance from the sample to the closest point of the segment
+                double t = lengthSquared == 0 ? 0 : ((px - x0) * dx + (py - y0) * dy) / lengthSquared;
+                t = Math.max(0, Math.min(1, t));
+                double ex = px - (x0 + t * dx);
+                double ey = py - (y0 + t * dy);
+                if (ex * ex + ey * ey <= rSquared) {
+                    covered[index] = true;
+                    cellCounts[(row / SUB) * SIZE + col / SUB]++;
+                    coveredSamples++;
+                }
+            }
+        }
+    }
+
+    /** Erases every stroke. */
+    public void clear() {
+        Arrays.fill(covered, false);
+        Arrays.fill(cellCounts, 0);
+        coveredSamples = 0;
+    }
+
+    /** @return True if nothing has been drawn since construction or the last {@link #clear()} */
+    public boolean isEmpty() {
+        return coveredSamples == 0;
+    }
+
+    /**
+     * @param dest Receives the ink amount 0..255 per cell, row-major; at least {@code 28 * 28} values
+     * @return {@code dest}
+     */
+    @NotNull
+    public float[] copyInk(@NotNull float[] dest) {
+        float perSample = 255.0f / (SUB * SUB);
+        for (int i = 0; i < cellCounts.length; i++) {
+            dest[i] = cellCounts[i] * perSample;
+        }
+        return dest;
+    }
+}
@@ -1,11 +1,5 @@
 package edu.farmingdale.dl4j_demo;
 
-import org.datavec.api.io.labels.ParentPathLabelGenerator;
-import org.datavec.api.split.FileSplit;
-import org.datavec.image.loader.NativeImageLoader;
-import org.datavec.image.recordreader.ImageRecordReader;
-import org.deeplearning4j.core.storage.StatsStorage;
-import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.WorkspaceMode;
@@ -17,15 +11,15 @@ import org.deeplearning4j.nn.conf.layers.SubsamplingLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.deeplearning4j.optimize.api.TrainingListener;
-import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
-import org.deeplearning4j.ui.api.UIServer;
-import org.deeplearning4j.ui.model.stats.StatsListener;
-import org.deeplearning4j.ui.model.storage.InMemoryStatsStorage;
 import org.deeplearning4j.util.ModelSerializer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.nd4j.common.primitives.Pair;
 import org.nd4j.evaluation.classification.Evaluation;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.preprocessor.DataNormalization;
 import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
@@ -34,15 +28,17 @@ import org.nd4j.linalg.lossfunctions.LossFunctions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javafx.scene.image.Image;
-import javafx.embed.swing.SwingFXUtils;
 
-import java.awt.image.BufferedImage;
-import java.awt.Graphics2D;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 /**
@@ -53,8 +49,38 @@ import java.util.function.Consumer;
  */
 public class TrainCNN {
     private static final Logger log = LoggerFactory.getLogger(TrainCNN.class);
-    private static MultiLayerNetwork modelInstance; // Cached model instance
-    private static final String MODEL_PATH = "mnist-model.zip";
+    /**
+     * A model together with the normalizer it was trained with, published as one unit.
+     * {@code snapshot} keeps memory-mapped parameters reachable (null when loaded from the zip).
+     */
+    private record LoadedModel(MultiLayerNetwork network, DataNormalization normalizer, ModelSnapshot snapshot) {}
+
+    /**
+     * What predictions are served from: the model and its replica pool (null until first needed).
+     * Replaced as a whole by a single volatile write, so readers never see a model with another model's engine.
+     */
+    private record Serving(LoadedModel model, InferenceEngine engine) {}
+
+    private static final Object MODEL_LOCK = new Object(); // Serializes loading and replacing the served model
+    private static volatile Serving serving; // Cached model and engine (null until first use)
+    private static final int WARMUP_PASSES = 5; // Dummy forward passes per replica before the first real prediction
+
+    // Latency of each stage of predict(Image)
+    private static final LatencyHistogram PREDICT_PREPROCESS = PerfMetrics.histogram("predict_preprocess",
+            "Canvas image to normalized 28x28 input");
+    private static final LatencyHistogram PREDICT_OUTPUT = PerfMetrics.histogram("predict_output",
+            "Forward pass, including waiting for a free replica");
+    private static final LatencyHistogram PREDICT_ARGMAX = PerfMetrics.histogram("predict_argmax",
+            "Picking the most likely digit from the network output");
+    static final String MODEL_PATH = "mnist-model.zip";
+    // Inference-only copy of MODEL_PATH that is memory-mapped at startup, rewritten whenever it is older
+    static final String SNAPSHOT_PATH = "mnist-model.snapshot";
+    // Paths to the training and test image folders (parent directory names are the labels)
+    static final String TRAIN_DATA_PATH = "src/main/resources/edu/farmingdale/dl4j_demo/mnist_png/training";
+    static final String TEST_DATA_PATH  = "src/main/resources/edu/farmingdale/dl4j_demo/mnist_png/testing";
+    // Pre-decoded binary copies of the folders above, built on first use
+    static final String TRAIN_CACHE_PATH = "mnist-cache/training.bin";
+    static final String TEST_CACHE_PATH  = "mnist-cache/testing.bin";
 
     /**
      * Standalone entry point: train for 10 epochs and print logs to stdout.
@@ -64,24 +90,152 @@ public class TrainCNN {
     }
 
     /**
-     * Gets the trained model. Loads it from disk if not already in memory.
-     * @return The MultiLayerNetwork model.
+     * Gets a copy of the trained model. Loads it from disk if not already in memory.
+     * The served network's parameters may be a read-only memory mapping ({@link ModelSnapshot})
+     * and are shared with the inference engine's replicas, so writing them in place (e.g. by
+     * {@code fit}) would crash the JVM or corrupt every prediction. The copy has its own
+     * parameters and may be trained or modified freely. Predictions should go through
+     * {@link #getEngine()} instead, which does not copy anything.
+     * @return A copy of the MultiLayerNetwork model.
+     * @throws IOException If the model file is not found or cannot be loaded.
+     */
+    public static MultiLayerNetwork getModel() throws IOException {
+        return loadedModel().network().clone();
+    }
+
+    /**
+     * Gets the normalizer the current model was trained with, loading the model if needed.
+     * @return The training-time normalizer.
      * @throws IOException If the model file is not found or cannot be loaded.
      */
-    public static synchronized MultiLayerNetwork getModel() throws IOException {
-        if (modelInstance == null) {
-            File modelFile = new File(MODEL_PATH);
-            if (!modelFile.exists()) {
-                String errorMsg = "Model file not found: " + modelFile.getAbsolutePath() +
-                        ". Please train the model first by running the training application.";
-                log.error(errorMsg);
-                throw new IOException(errorMsg);
+    public static DataNormalization getNormalizer() throws IOException {
+        return loadedModel().normalizer();
+    }
+
+    private static LoadedModel loadedModel() throws IOException {
+        Serving current = serving;
+        if (current == null) {
+            synchronized (MODEL_LOCK) {
+                if (serving == null) {
+                    serving = new Serving(loadModel(), null);
+                }
+                current = serving;
             }
-            log.info("Loading model from: " + modelFile.getAbsolutePath());
-            modelInstance = ModelSerializer.restoreMultiLayerNetwork(modelFile);
-            log.info("Model loaded successfully.");
         }
-        return modelInstance;
+        return current.model();
+    }
+
+    /**
+     * Maps the inference snapshot when it is at least as new as the model zip.
+     * Otherwise restores the zip and writes a fresh snapshot for the next start.
+     * @throws FileNotFoundException If no model has been trained yet; an expected state, so it is not logged here
+     */
+    private static LoadedModel loadModel() throws IOException {
+        File modelFile = new File(MODEL_PATH);
+        File snapshotFile = new File(SNAPSHOT_PATH);
+        if (!modelFile.exists() && !snapshotFile.exists()) {
+            throw new FileNotFoundException("Model file not found: " + modelFile.getAbsolutePath() +
+                    ". Please train the model first by running the training application.");
+        }
+        if (snapshotFile.exists() && snapshotFile.lastModified() >= modelFile.lastModified()) {
+            try {
+                log.info("Mapping model snapshot: " + snapshotFile.getAbsolutePath());
+                ModelSnapshot snapshot = ModelSnapshot.map(snapshotFile);
+                log.info("Model loaded successfully.");
+                return new LoadedModel(snapshot.getNetwork(), snapshot.getNormalizer(), snapshot);
+            } catch (IOException | RuntimeException e) {
+                if (!modelFile.exists()) throw e;
+                log.warn("Could not map model snapshot {}; loading {} instead: {}", snapshotFile.getName(), modelFile.getName(), e.getMessage());
+            }
+        }
+
+        log.info("Loading model from: " + modelFile.getAbsolutePath());
+        // Inference never needs the updater state, so skip restoring it
+        Pair<MultiLayerNetwork, ?> restored = ModelSerializer.restoreMultiLayerNetworkAndNormalizer(modelFile, false);
+        DataNormalization normalizer;
+        if (restored.getSecond() instanceof DataNormalization stored) {
+            normalizer = stored;
+        } else {
+            // Models saved before the normalizer was stored alongside them were trained with this scaler
+            log.warn("No normalizer stored in {}; assuming [0..255] -> [0..1] scaling.", modelFile.getName());
+            normalizer = new ImagePreProcessingScaler(0, 1);
+        }
+        writeSnapshot(restored.getFirst(), normalizer);
+        log.info("Model loaded successfully.");
+        return new LoadedModel(restored.getFirst(), normalizer, null);
+    }
+
+    private static void writeSnapshot(MultiLayerNetwork model, DataNormalization normalizer) {
+        try {
+            ModelSnapshot.write(model, normalizer, new File(SNAPSHOT_PATH));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write model snapshot {}: {}", SNAPSHOT_PATH, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the thread-safe inference engine for the current model, creating it on first use.
+     * Predictions go through the engine rather than {@link #getModel()}, because a single
+     * {@code MultiLayerNetwork} cannot run concurrent {@code output()} calls.
+     * @return The engine serving the current model.
+     * @throws IOException If the model file is not found or cannot be loaded.
+     */
+    public static InferenceEngine getEngine() throws IOException {
+        Serving current = serving;
+        if (current == null || current.engine() == null) {
+            synchronized (MODEL_LOCK) {
+                current = serving;
+                LoadedModel model = current != null ? current.model() : loadModel();
+                if (current == null || current.engine() == null) {
+                    current = new Serving(model, new InferenceEngine(model.network(), model.normalizer(),
+                            InferenceEngine.defaultReplicaCount()));
+                    serving = current;
+                }
+            }
+        }
+        return current.engine();
+    }
+
+    /**
+     * Starts serving a newly trained model. The new engine is built and warmed up
+     * first, then swapped in with a single reference write: predictions already
+     * running finish on the old engine, later ones use the new one, and none of
+     * them waits for the swap.
+     * @param model      Trained network; must not be trained further
+     * @param normalizer Normalizer it was trained with
+     */
+    static void publish(@NotNull MultiLayerNetwork model, @NotNull DataNormalization normalizer) {
+        InferenceEngine engine = new InferenceEngine(model, normalizer, InferenceEngine.defaultReplicaCount());
+        try {
+            engine.warmUp(WARMUP_PASSES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Serve it cold rather than not at all
+        }
+        synchronized (MODEL_LOCK) {
+            serving = new Serving(new LoadedModel(model, normalizer, null), engine);
+        }
+        log.info("Now serving the newly trained model");
+    }
+
+    /**
+     * Loads the model and runs a few dummy forward passes on every replica on a
+     * background thread, so the JIT and ND4J workspaces are warm before the first
+     * real prediction. Does nothing (beyond a log line) if there is no model yet.
+     */
+    public static void warmUpInBackground() {
+        Thread warmUp = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                getEngine().warmUp(WARMUP_PASSES);
+                log.info("Model warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
+            } catch (IOException e) {
+                log.info("Skipping model warm-up: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "model-warmup");
+        warmUp.setDaemon(true);
+        warmUp.start();
     }
 
     /**
@@ -91,158 +245,390 @@ public class TrainCNN {
      * @throws Exception If there's an error during model loading or prediction.
      */
     public static int predict(Image fxImage) throws Exception {
-        MultiLayerNetwork model = getModel();
+        InferenceEngine engine = getEngine();
 
-        // 1. Convert JavaFX Image to BufferedImage
-        BufferedImage bImage = SwingFXUtils.fromFXImage(fxImage, null);
+        // 1. Downsample to 28x28, invert to MNIST's light-on-dark and apply the training-time
+        //    normalization in one pass, into this thread's reusable input array (shape [1, 1, 28, 28])
+        long start = System.nanoTime();
+        INDArray imageArray = engine.getCanvasPreprocessor().toInput(fxImage);
+        long preprocessed = System.nanoTime();
 
-        // 2. Resize BufferedImage to 28x28 and convert to grayscale
-        //    The model expects 28x28, 1 channel (grayscale)
-        BufferedImage resizedBImage = new BufferedImage(28, 28, BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D g2d = resizedBImage.createGraphics();
-        // Use smooth scaling
-        g2d.drawImage(bImage, 0, 0, 28, 28, null);
-        g2d.dispose();
+        // 2. Make prediction on a pooled replica
+        INDArray output = engine.output(imageArray);
+        long computed = System.nanoTime();
 
-        // 3. Convert resized BufferedImage to INDArray using NativeImageLoader
-        //    Height, Width, Channels
-        NativeImageLoader loader = new NativeImageLoader(28, 28, 1);
-        INDArray imageArray = loader.asMatrix(resizedBImage); // Shape: [1, 1, 28, 28]
+        // 3. Get the predicted class (argMax along dimension 1 finds the digit with the highest probability)
+        int prediction = output.argMax(1).getInt(0);
+        long done = System.nanoTime();
 
-        // 4. Normalize pixel values from [0..255] to [0..1]
-        //    Our drawing is black (0) on white (255). After scaling, it's black (0) on white (1).
-        DataNormalization scaler = new ImagePreProcessingScaler(0, 1);
-        scaler.transform(imageArray); // Applies normalization in-place
+        PREDICT_PREPROCESS.record(preprocessed - start);
+        PREDICT_OUTPUT.record(computed - preprocessed);
+        PREDICT_ARGMAX.record(done - computed);
+        return prediction;
+    }
 
-        // 5. Invert colors: MNIST is typically a white digit (~1) on a black background (~0).
-        //    Our input (black on white, scaled to 0 on 1) needs to be inverted.
-        imageArray = imageArray.rsub(1.0);
+    /**
+     * Classifies a 28x28 ink grid, e.g. strokes rasterized by a {@link StrokeRasterizer}.
+     * @param ink Ink amount 0..255 per cell, row-major
+     * @return The predicted digit with every digit's probability
+     * @throws Exception If there's an error during model loading or prediction.
+     */
+    @NotNull
+    public static Prediction predictInk(@NotNull float[] ink) throws Exception {
+        InferenceEngine engine = getEngine();
 
-        // 6. Make prediction
-        INDArray output = model.output(imageArray);
+        long start = System.nanoTime();
+        INDArray input = engine.getCanvasPreprocessor().toInput(ink);
+        long preprocessed = System.nanoTime();
+        INDArray output = engine.output(input);
+        long computed = System.nanoTime();
+        Prediction prediction = Prediction.fromProbabilities(output.toFloatVector());
+        long done = System.nanoTime();
 
-        // 7. Get the predicted class (digit with the highest probability)
-        //    output is a row vector of probabilities, argMax along dimension 1 finds the index of max value.
-        int[] prediction = output.argMax(1).toIntVector();
-        return prediction[0];
+        PREDICT_PREPROCESS.record(preprocessed - start);
+        PREDICT_OUTPUT.record(computed - preprocessed);
+        PREDICT_ARGMAX.record(done - computed);
+        return prediction;
     }
 
     /**
-     * Runs the CNN training loop.
-     * @param epochs      Number of full passes over the dataset
-     * @param logConsumer Consumer that receives one log line per update
-     * @throws Exception on file or training errors
+     * Builds the CNN architecture for the given settings.
+     * @param config Training settings (seed, optimizer and layer sizes)
+     * @return The network configuration, ready for {@code new MultiLayerNetwork(conf).init()}
      */
-    public static void runTraining(int epochs, @NotNull Consumer<String> logConsumer) throws Exception {
+    @NotNull
+    public static MultiLayerConfiguration buildConfiguration(@NotNull TrainingConfig config) {
         // Image dimensions and number of output classes (digits 0–9)
         final int height = 28, width = 28, channels = 1, outputNum = 10;
-        final int batchSize = 64;        // Number of examples per mini‑batch
-        final long seed = 1234;          // Random seed for reproducibility
-
-        logConsumer.accept("Setting up data iterators...");
-        // Paths to the training and test image folders
-        File trainData = new File("src/main/resources/edu/farmingdale/dl4j_demo/mnist_png/training");
-        File testData  = new File("src/main/resources/edu/farmingdale/dl4j_demo/mnist_png/testing");
 
-        // Use parent directory names as labels (0, 1, 2, …)
-        ParentPathLabelGenerator labelMaker = new ParentPathLabelGenerator();
-        Random rng = new Random(seed);
-
-        // Create FileSplits for both training and test sets
-        FileSplit trainSplit = new FileSplit(trainData, NativeImageLoader.ALLOWED_FORMATS, rng);
-        FileSplit testSplit  = new FileSplit(testData,  NativeImageLoader.ALLOWED_FORMATS, rng);
-
-        // RecordReaders convert image files into record formats
-        ImageRecordReader trainRR = new ImageRecordReader(height, width, channels, labelMaker);
-        trainRR.initialize(trainSplit);
-        DataSetIterator trainIter = new RecordReaderDataSetIterator(trainRR, batchSize, 1, outputNum);
-
-        ImageRecordReader testRR = new ImageRecordReader(height, width, channels, labelMaker);
-        testRR.initialize(testSplit);
-        DataSetIterator testIter  = new RecordReaderDataSetIterator(testRR, batchSize, 1, outputNum);
-
-        // Normalize pixel values from [0..255] to [0..1]
-        DataNormalization scaler = new ImagePreProcessingScaler(0, 1);
-        scaler.fit(trainIter); // Fit on training data
-        trainIter.setPreProcessor(scaler);
-        testIter.setPreProcessor(scaler);
-        logConsumer.accept("Data iterators ready.");
-
-        logConsumer.accept("Building network configuration...");
-        // Build the CNN architecture
-        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
-                .seed(seed)
-                .updater(new Nesterovs(0.006, 0.9))               // Learning rate and momentum
+        return new NeuralNetConfiguration.Builder()
+                .seed(config.getSeed())
+                .updater(new Nesterovs(config.getLearningRate(), config.getMomentum())) // Learning rate and momentum
                 .weightInit(WeightInit.XAVIER) // Using imported WeightInit
                 .trainingWorkspaceMode(WorkspaceMode.ENABLED) // If this causes errors, it's likely a deeper native/dependency issue
                 .inferenceWorkspaceMode(WorkspaceMode.ENABLED) // Same as above
                 .list()
                 // First convolution + max‐pool
                 .layer(new ConvolutionLayer.Builder(5,5)
-                        .nIn(channels).stride(1,1).nOut(20)
+                        .nIn(channels).stride(1,1).nOut(config.getConv1Filters())
                         .activation(Activation.IDENTITY).build())
                 .layer(new SubsamplingLayer.Builder(SubsamplingLayer.PoolingType.MAX)
                         .kernelSize(2,2).stride(2,2).build())
                 // Second convolution + max‐pool
                 .layer(new ConvolutionLayer.Builder(5,5)
-                        .stride(1,1).nOut(50)
+                        .stride(1,1).nOut(config.getConv2Filters())
                         .activation(Activation.IDENTITY).build())
                 .layer(new SubsamplingLayer.Builder(SubsamplingLayer.PoolingType.MAX)
                         .kernelSize(2,2).stride(2,2).build())
                 // Fully connected layer
                 .layer(new DenseLayer.Builder()
-                        .activation(Activation.RELU).nOut(500).build())
+                        .activation(Activation.RELU).nOut(config.getDenseUnits()).build())
                 // Output layer with softmax for classification
                 .layer(new OutputLayer.Builder(LossFunctions.LossFunction.NEGATIVELOGLIKELIHOOD)
                         .activation(Activation.SOFTMAX).nOut(outputNum).build())
                 .setInputType(InputType.convolutionalFlat(height, width, channels))
                 .build();
-        logConsumer.accept("Network configuration built.");
+    }
 
-        // Initialize the model
-        MultiLayerNetwork newModel = new MultiLayerNetwork(conf);
-        newModel.init();
-        logConsumer.accept("Model initialized.");
+    /**
+     * Splits {@code 0..size-1} into a seeded random hold-out of {@code holdOut}
+     * indices and the rest. Both parts are returned in ascending order.
+     * @return {remaining, heldOut}
+     */
+    static int[][] holdOut(int size, int holdOut, long seed) {
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) all[i] = i;
+        Random rng = new Random(seed);
+        for (int i = 0; i < holdOut; i++) { // Partial Fisher-Yates: the first holdOut slots are the sample
+            int j = i + rng.nextInt(size - i);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        int[] heldOut = Arrays.copyOfRange(all, 0, holdOut);
+        int[] remaining = Arrays.copyOfRange(all, holdOut, size);
+        Arrays.sort(heldOut);
+        Arrays.sort(remaining);
+        return new int[][]{remaining, heldOut};
+    }
 
-        // Setup listeners
-        List<TrainingListener> listeners = new ArrayList<>();
-        listeners.add(new ScoreIterationListener(100)); // Always log score to console
+    /**
+     * Loads the given examples once as normalized minibatches, to keep in memory.
+     * @param examples Example indices in the cache
+     */
+    @NotNull
+    static List<DataSet> loadBatches(@NotNull MnistBinaryCache cache, @NotNull int[] examples, int batchSize, long seed,
+                                     @NotNull DataSetPreProcessor preProcessor) {
+        CachedMnistDataSetIterator iter = new CachedMnistDataSetIterator(cache, batchSize, seed, examples);
+        iter.setPreProcessor(preProcessor);
+        List<DataSet> batches = new ArrayList<>();
+        while (iter.hasNext()) {
+            batches.add(iter.next());
+        }
+        return batches;
+    }
 
-        // Try to set up UI, but don't let it stop training if it fails
-        try {
-            UIServer uiServer = UIServer.getInstance();
-            StatsStorage statsStorage = new InMemoryStatsStorage();
-            uiServer.attach(statsStorage);
-            listeners.add(new StatsListener(statsStorage));
-            logConsumer.accept("UI Server attached. Access at http://localhost:9000");
-        } catch (Exception e) {
-            log.warn("Could not start DL4J UI Server. Training will continue without UI. Error: {}", e.getMessage(), e);
-            logConsumer.accept("Warning: DL4J UI Server could not start. Check logs for details (e.g., port 9000 might be in use).");
+    /** Scores the model on in-memory, already normalized minibatches. */
+    static Evaluation evaluate(MultiLayerNetwork model, List<DataSet> batches) {
+        Evaluation eval = new Evaluation();
+        for (DataSet ds : batches) {
+            eval.eval(ds.getLabels(), model.output(ds.getFeatures(), false));
         }
-        newModel.setListeners(listeners);
+        return eval;
+    }
 
+    /** Scores the model on one pass over the iterator and rewinds it. */
+    private static Evaluation evaluate(MultiLayerNetwork model, DataSetIterator iter) {
+        Evaluation eval = model.evaluate(iter);
+        iter.reset();
+        return eval;
+    }
 
-        logConsumer.accept("----- TRAINING START -----");
+    private static void logTestEvaluation(String label, Evaluation eval, Consumer<String> logConsumer) {
+        String line = String.format("%s evaluation. Accuracy: %.4f, Precision: %.4f, Recall: %.4f, F1: %.4f",
+                label, eval.accuracy(), eval.precision(), eval.recall(), eval.f1());
+        logConsumer.accept(line);
+        log.info(line);
+    }
 
-        // Training loop: fit, evaluate, log accuracy
-        for (int i = 0; i < epochs; i++) {
-            logConsumer.accept(String.format("Starting Epoch %d/%d...", i + 1, epochs));
-            newModel.fit(trainIter);
-            trainIter.reset();
+    /**
+     * Runs the CNN training loop with default settings.
+     * @param epochs      Number of full passes over the dataset
+     * @param logConsumer Consumer that receives one log line per update
+     * @throws Exception on file or training errors
+     */
+    public static void runTraining(int epochs, @NotNull Consumer<String> logConsumer) throws Exception {
+        runTraining(new TrainingConfig.Builder().epochs(epochs).build(), logConsumer);
+    }
 
-            logConsumer.accept(String.format("Evaluating model after Epoch %d...", i + 1));
-            Evaluation eval = newModel.evaluate(testIter);
-            String line = String.format("Epoch %d complete. Accuracy: %.4f, Precision: %.4f, Recall: %.4f, F1: %.4f",
-                    i + 1, eval.accuracy(), eval.precision(), eval.recall(), eval.f1());
-            logConsumer.accept(line);
-            log.info(line); // Also log to SLF4J
-            testIter.reset();
+    /**
+     * Runs the CNN training loop.
+     * @param config      Training settings (epochs, batch size, data pipeline, ...)
+     * @param logConsumer Consumer that receives one log line per update
+     * @throws Exception on file or training errors
+     */
+    public static void runTraining(@NotNull TrainingConfig config, @NotNull Consumer<String> logConsumer) throws Exception {
+        runTraining(config, logConsumer, null);
+    }
+
+    /**
+     * Runs the CNN training loop, streaming progress samples for live charts.
+     * @param config           Training settings (epochs, batch size, data pipeline, ...)
+     * @param logConsumer      Consumer that receives one log line per update
+     * @param progressConsumer Receives a progress sample every few iterations, on the training thread (may be null)
+     * @throws Exception on file or training errors
+     */
+    public static void runTraining(@NotNull TrainingConfig config, @NotNull Consumer<String> logConsumer,
+                                   @Nullable Consumer<TrainingProgress> progressConsumer) throws Exception {
+        runTraining(config, logConsumer, progressConsumer, null);
+    }
+
+    /**
+     * Runs the CNN training loop and stops early when asked to. Cancellation is
+     * checked after every iteration and between epochs. A cancelled run keeps its
+     * checkpoints (so a later run with the same settings resumes from them) and
+     * leaves the served model unchanged.
+     * @param config           Training settings (epochs, batch size, data pipeline, ...)
+     * @param logConsumer      Consumer that receives one log line per update
+     * @param progressConsumer Receives a progress sample every few iterations, on the training thread (may be null)
+     * @param cancelRequested  Polled on the training thread; once it returns true, training stops (may be null)
+     * @throws CancellationException If training was cancelled
+     * @throws Exception on file or training errors
+     */
+    public static void runTraining(@NotNull TrainingConfig config, @NotNull Consumer<String> logConsumer,
+                                   @Nullable Consumer<TrainingProgress> progressConsumer,
+                                   @Nullable BooleanSupplier cancelRequested) throws Exception {
+        final int epochs = config.getEpochs();
+        final int batchSize = config.getBatchSize(); // Number of examples per mini‑batch
+        final long seed = config.getSeed();          // Random seed for reproducibility
+
+        logConsumer.accept("Setting up data iterators...");
+        // Decode the PNG trees once into compact binary caches; later runs memory-map
+        // them and only rebuild when the source images change.
+        MnistBinaryCache trainCache = MnistBinaryCache.loadOrBuild(new File(TRAIN_DATA_PATH), new File(TRAIN_CACHE_PATH), logConsumer);
+        MnistBinaryCache testCache  = MnistBinaryCache.loadOrBuild(new File(TEST_DATA_PATH), new File(TEST_CACHE_PATH), logConsumer);
+
+        // Load (and normalize) upcoming minibatches on background workers while the current one trains
+        PrefetchDataSetIterator trainPrefetch = null, testPrefetch = null;
+        TrainingTelemetry telemetry = null;
+        CheckpointManager checkpoints = null;
+        DataParallelTrainer parallelTrainer = null;
+        BooleanSupplier cancelled = cancelRequested != null ? cancelRequested : () -> false;
+        // Hold out a fixed, seeded part of the training set to score every epoch
+        int[][] split = holdOut(trainCache.size(), Math.max(0, Math.min(config.getValidationSize(), trainCache.size() - 1)), seed);
+        int[] trainExamples = split[0], validationExamples = split[1];
+        CachedMnistDataSetIterator trainSource = new CachedMnistDataSetIterator(trainCache, batchSize, seed, trainExamples);
+        DataSetIterator trainIter = trainSource;
+        DataSetIterator testIter  = new CachedMnistDataSetIterator(testCache, batchSize, seed);
+        if (config.getPrefetchWorkers() > 0) {
+            trainPrefetch = new PrefetchDataSetIterator(trainSource,
+                    config.getPrefetchWorkers(), config.getPrefetchQueueSize());
+            testPrefetch = new PrefetchDataSetIterator((CachedMnistDataSetIterator) testIter,
+                    config.getPrefetchWorkers(), config.getPrefetchQueueSize());
+            trainIter = trainPrefetch;
+            testIter = testPrefetch;
+            logConsumer.accept(String.format("Prefetching with %d worker(s), up to %d batches ahead.",
+                    config.getPrefetchWorkers(), config.getPrefetchQueueSize()));
         }
+        try {
+            // Normalize pixel values from [0..255] to [0..1]. The range is fixed, so there is
+            // nothing to fit (and no data pass needed); the scaler is saved with the model so
+            // inference applies exactly the same transform.
+            DataNormalization scaler = new ImagePreProcessingScaler(0, 1);
+            trainIter.setPreProcessor(scaler);
+            testIter.setPreProcessor(scaler);
+            // Distort training examples as they are loaded (on the prefetch workers, if any); never the evaluation data
+            MnistAugmenter augmenter = MnistAugmenter.forConfig(config);
+            trainSource.setAugmenter(augmenter);
+            if (augmenter != null) {
+                logConsumer.accept(String.format("Augmenting %.0f%% of training images: shift up to %.1f px, "
+                                + "rotation up to %.0f degrees, scale up to %.0f%%, stroke thickness %.0f%% of those.",
+                        100 * config.getAugmentProbability(), config.getAugmentMaxShift(), config.getAugmentMaxRotation(),
+                        100 * config.getAugmentMaxScale(), 100 * config.getAugmentThicknessProbability()));
+            }
+            // The validation minibatches are loaded and normalized once and kept in memory
+            List<DataSet> validation = null;
+            if (validationExamples.length > 0) {
+                validation = loadBatches(trainCache, validationExamples, batchSize, seed, scaler);
+                logConsumer.accept(String.format("Holding out %d training images for validation; training on %d.",
+                        validationExamples.length, trainExamples.length));
+            }
+            logConsumer.accept("Data iterators ready.");
 
-        File modelFile = new File(MODEL_PATH);
-        ModelSerializer.writeModel(newModel, modelFile, true);
-        logConsumer.accept("Model saved to " + modelFile.getAbsolutePath());
-        log.info("Model saved to " + modelFile.getAbsolutePath());
-        modelInstance = newModel;
+            logConsumer.accept("Building network configuration...");
+            MultiLayerConfiguration conf = buildConfiguration(config);
+            logConsumer.accept("Network configuration built.");
+
+            // Continue an interrupted run with the same configuration from its latest checkpoint,
+            // otherwise initialize a fresh model
+            checkpoints = new CheckpointManager(config, scaler, trainSource.numBatches(), logConsumer);
+            CheckpointManager.Checkpoint checkpoint = config.isResume() ? checkpoints.latest() : null;
+            MultiLayerNetwork newModel;
+            int startEpoch = 0, startBatch = 0;
+            if (checkpoint != null) {
+                newModel = checkpoint.network();
+                startEpoch = checkpoint.state().epoch();
+                startBatch = checkpoint.state().batch();
+                logConsumer.accept(String.format("Resuming from %s: %d epoch(s) and %d minibatch(es) already trained.",
+                        checkpoint.file().getName(), startEpoch, startBatch));
+            } else {
+                checkpoints.clear();
+                newModel = new MultiLayerNetwork(conf);
+                newModel.init();
+                logConsumer.accept("Model initialized.");
+            }
+
+            // Setup listeners: score logging, sampled stats (UI optional), progress and per-step timing,
+            // plus mid-epoch checkpoints when training the model directly
+            telemetry = new TrainingTelemetry(config, logConsumer, progressConsumer);
+            List<TrainingListener> listeners = new ArrayList<>(telemetry.getListeners());
+            if (config.getDataParallelWorkers() <= 1) {
+                listeners.add(0, telemetry.getStepTiming().timed(checkpoints.timeTrigger()));
+            }
+            listeners.add(0, new CancellationListener(cancelled));
+            newModel.setListeners(listeners);
+
+            // Opt-in data-parallel mode: replicas train on disjoint shards and are averaged periodically
+            if (config.getDataParallelWorkers() > 1) {
+                parallelTrainer = new DataParallelTrainer(newModel, trainCache, trainExamples, config.getDataParallelWorkers(),
+                        batchSize, seed, config.getAveragingFrequency(), scaler);
+                parallelTrainer.setAugmenter(augmenter);
+                parallelTrainer.setCancelRequested(cancelled);
+                logConsumer.accept(String.format("Data-parallel training with %d workers, averaging every %d minibatches.",
+                        config.getDataParallelWorkers(), config.getAveragingFrequency()));
+            }
+
+            // Skip the data a resumed run has already trained on
+            if (parallelTrainer != null) {
+                // Shards can only be positioned at epoch boundaries
+                parallelTrainer.seekEpoch(startEpoch);
+                startBatch = 0;
+            } else if (trainPrefetch != null) {
+                trainPrefetch.seek(startEpoch, startBatch);
+            } else {
+                trainSource.seek(startEpoch, startBatch);
+            }
+
+            logConsumer.accept("----- TRAINING START -----");
+
+            // Training loop: fit, score on the validation set, stop early once it stops improving
+            EarlyStopping stopping = new EarlyStopping(config);
+            final int fullEvery = config.getFullEvaluationEveryEpochs();
+            for (int i = startEpoch; i < epochs; i++) {
+                CancellationListener.check(cancelled);
+                logConsumer.accept(String.format("Starting Epoch %d/%d...", i + 1, epochs));
+                checkpoints.beginEpoch(i, i == startEpoch ? startBatch : 0);
+                if (trainPrefetch != null) trainPrefetch.resetStats();
+                telemetry.getStepTiming().reset();
+                long epochStart = System.nanoTime();
+                if (parallelTrainer != null) {
+                    try {
+                        parallelTrainer.fitEpoch();
+                    } catch (ExecutionException e) {
+                        // The first replica's listeners may notice cancellation first, on a worker thread
+                        if (e.getCause() instanceof CancellationException c) throw c;
+                        throw e;
+                    }
+                } else {
+                    newModel.fit(trainIter);
+                    trainIter.reset();
+                }
+                long epochMillis = (System.nanoTime() - epochStart) / 1_000_000;
+                logConsumer.accept(String.format("Epoch %d trained in %d ms.", i + 1, epochMillis));
+                checkpoints.endEpoch(newModel); // Written in the background while evaluation runs
+                if (trainPrefetch != null && parallelTrainer == null) {
+                    // A ready queue near capacity and little stall time means data loading is no longer the bottleneck
+                    logConsumer.accept(String.format("Data pipeline: %.1f/%d batches ready on average, training stalled %d ms (%.1f%% of epoch).",
+                            trainPrefetch.getAverageReadyDepth(), trainPrefetch.getQueueCapacity(), trainPrefetch.getStallMillis(),
+                            epochMillis == 0 ? 0.0 : 100.0 * trainPrefetch.getStallMillis() / epochMillis));
+                }
+                if (parallelTrainer == null) {
+                    logConsumer.accept("Step timing: " + telemetry.getStepTiming().summary());
+                }
+
+                logConsumer.accept(String.format("Evaluating model after Epoch %d...", i + 1));
+                Evaluation eval = validation != null ? evaluate(newModel, validation) : evaluate(newModel, testIter);
+                String line = String.format("Epoch %d complete. %s accuracy: %.4f, Precision: %.4f, Recall: %.4f, F1: %.4f",
+                        i + 1, validation != null ? "Validation" : "Test", eval.accuracy(), eval.precision(), eval.recall(), eval.f1());
+                logConsumer.accept(line);
+                log.info(line); // Also log to SLF4J
+
+                if (stopping.epochDone(i, eval.accuracy(), newModel)) {
+                    logConsumer.accept(String.format("Stopping after Epoch %d: %s.", i + 1, stopping.getReason()));
+                    break;
+                }
+                // Periodic full test set evaluation; the final one below covers the last epoch
+                if (validation != null && fullEvery > 0 && (i + 1) % fullEvery == 0 && i + 1 < epochs) {
+                    logTestEvaluation(String.format("Epoch %d test set", i + 1), evaluate(newModel, testIter), logConsumer);
+                }
+            }
+
+            CancellationListener.check(cancelled);
+            boolean restored = stopping.restoreBest(newModel);
+            if (restored) {
+                logConsumer.accept(String.format("Restored the best model, from Epoch %d (accuracy %.4f).",
+                        stopping.getBestEpoch() + 1, stopping.getBestScore()));
+            }
+            if (validation != null || restored) {
+                logTestEvaluation("Final test set", evaluate(newModel, testIter), logConsumer);
+            }
+
+            CancellationListener.check(cancelled);
+
+            // The model is usable in memory right away; the files are written in the background while it is
+            // published, and closing the checkpoint manager below waits for them, so the next run never sees
+            // this one's checkpoints
+            logConsumer.accept("Saving model...");
+            checkpoints.saveFinal(newModel, new File(MODEL_PATH), new File(SNAPSHOT_PATH));
+            // The served model must not call back into this run's listeners (UI stats, cancellation)
+            newModel.setListeners();
+            publish(newModel, scaler);
+        } finally {
+            if (parallelTrainer != null) parallelTrainer.close();
+            if (trainPrefetch != null) trainPrefetch.close();
+            if (testPrefetch != null) testPrefetch.close();
+            if (telemetry != null) telemetry.close();
+            if (checkpoints != null) checkpoints.close();
+        }
     }
 }
\ No newline at end of file
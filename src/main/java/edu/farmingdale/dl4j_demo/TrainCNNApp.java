@@ -1,29 +1,40 @@
 package edu.farmingdale.dl4j_demo;
 
 import javafx.application.Application;
-import javafx.concurrent.Task;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.fxml.FXMLLoader;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException; // Import IOException
 import java.net.URL;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JavaFX application for training a Convolutional Neural Network (CNN)
  * using DL4J. Provides a simple UI to input the number of training epochs,
- * start the training process, and view log output.
+ * start the training process, and view the streamed log output and a live
+ * throughput chart. Training runs are queued on a {@link TrainingJobScheduler}
+ * and can be cancelled.
  */
 public class TrainCNNApp extends Application {
     private TextArea logArea;         // Area to display training log messages
     private Spinner<Integer> epochSpinner; // Spinner to select the number of training epochs
     private Button trainButton;       // Button to trigger training
+    private Button cancelButton;      // Button to cancel the running and queued jobs
+    private TrainingMonitor monitor;  // Streams log lines and progress from the training thread
+    private final TrainingJobScheduler scheduler = new TrainingJobScheduler(4); // One job runs, up to 4 wait
 
     /**
      * Main entry point of the application.
@@ -45,6 +56,20 @@ public class TrainCNNApp extends Application {
 
         // Create the digit recognizer window
         createDigitRecognizerStage();
+
+        // Load and warm up the saved model (if any) while the user starts drawing
+        TrainCNN.warmUpInBackground();
+
+        // Log training and prediction latency summaries once a minute
+        PerfMetrics.startPeriodicLog(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Cancels any running or queued training when the application exits.
+     */
+    @Override
+    public void stop() {
+        scheduler.close();
     }
 
     @NotNull
@@ -55,7 +80,24 @@ public class TrainCNNApp extends Application {
         logArea = new TextArea();
         logArea.setEditable(false);
         logArea.setWrapText(true);
-        logArea.setPrefHeight(400);
+        logArea.setPrefHeight(300);
+
+        // Live throughput chart (examples/sec by iteration)
+        NumberAxis iterationAxis = new NumberAxis();
+        iterationAxis.setLabel("Iteration");
+        iterationAxis.setForceZeroInRange(false);
+        NumberAxis throughputAxis = new NumberAxis();
+        throughputAxis.setLabel("Examples/sec");
+        LineChart<Number, Number> throughputChart = new LineChart<>(iterationAxis, throughputAxis);
+        throughputChart.setAnimated(false);   // Points arrive in batches; animating each one costs FX time
+        throughputChart.setCreateSymbols(false);
+        throughputChart.setLegendVisible(false);
+        throughputChart.setPrefHeight(220);
+        XYChart.Series<Number, Number> throughput = new XYChart.Series<>();
+        throughputChart.getData().add(throughput);
+
+        // Keep the last 2000 log lines and 500 chart points
+        monitor = new TrainingMonitor(logArea, throughput, 2000, 500);
 
         // Spinner to choose the number of epochs (min: 1, max: 50, default: 10)
         epochSpinner = new Spinner<>(1, 50, 10);
@@ -64,17 +106,26 @@ public class TrainCNNApp extends Application {
         trainButton = new Button("Start Training");
         trainButton.setOnAction(_ -> startTraining());
 
+        // Button to stop training after the current iteration; queued runs are dropped too
+        cancelButton = new Button("Cancel Training");
+        cancelButton.setDisable(true);
+        cancelButton.setOnAction(_ -> {
+            monitor.log("Cancelling training...");
+            scheduler.cancelAll();
+        });
+
         // Layout for the UI components
         VBox root = new VBox(10,
                 new Label("Epochs:"), epochSpinner,
-                trainButton,
-                new Label("Training Log:"), logArea
+                trainButton, cancelButton,
+                new Label("Training Log:"), logArea,
+                new Label("Throughput:"), throughputChart
         );
         root.setPadding(new Insets(10));
         root.setAlignment(Pos.TOP_CENTER);
 
         // Set up and show the stage
-        Scene scene = new Scene(root, 500, 600);
+        Scene scene = new Scene(root, 500, 800);
         stage.setScene(scene);
         stage.setTitle("Train CNN Model");
 
@@ -114,6 +165,8 @@ public class TrainCNNApp extends Application {
                 System.err.println("Stylesheet not found for digit recognizer: /style.css");
             }
 
+            DigitRecognizerController controller = fxmlLoader.getController();
+            digitStage.setOnHidden(_ -> controller.shutdown());
             digitStage.setTitle("Digit Recognizer");
             digitStage.setScene(scene);
             digitStage.show();
@@ -135,43 +188,41 @@ public class TrainCNNApp extends Application {
     }
 
     /**
-     * Starts the training process in a background thread.
-     * Uses a JavaFX Task to perform training and update the log area with progress.
+     * Queues a training run with the selected number of epochs. Runs start one
+     * after another; log lines and progress are streamed through the monitor.
      */
     private void startTraining() {
-        // Disable the button to prevent multiple runs
-        trainButton.setDisable(true);
-        logArea.clear();
-        int epochs = epochSpinner.getValue();
-
-        // Define the background task for training
-        Task<Void> trainingTask = new Task<>() {
-            @Nullable
-            @Override
-            protected Void call() throws Exception {
-                // Call the static training method and update the log via callback
-                TrainCNN.runTraining(epochs, line -> updateMessage(line + "\n"));
-                return null;
+        boolean idle = scheduler.getUnfinishedCount() == 0;
+        TrainingConfig config = new TrainingConfig.Builder().epochs(epochSpinner.getValue()).build();
+        TrainingJobScheduler.Job job;
+        try {
+            // The callbacks only queue, the monitor updates the UI
+            job = scheduler.submit(config, monitor::log, monitor::progress);
+        } catch (RejectedExecutionException e) {
+            showError(e.getMessage());
+            return;
+        }
+        if (idle) {
+            monitor.start();
+        } else {
+            monitor.log(String.format("Training job %d queued behind the current run.", job.getId()));
+        }
+        cancelButton.setDisable(false);
+
+        job.completion().whenComplete((_, error) -> Platform.runLater(() -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause == null) {
+                monitor.log("\n✅ Training complete.");
+            } else if (cause instanceof CancellationException) {
+                monitor.log("\n⏹ Training cancelled.");
+            } else {
+                monitor.log("\n❌ Training failed: " + cause.getMessage());
             }
-        };
-
-        // Bind the log area to the task's message updates
-        logArea.textProperty().bind(trainingTask.messageProperty());
-
-        // Re-enable the button after training finishes
-        trainingTask.setOnSucceeded(_ -> {
-            logArea.appendText("\n✅ Training complete.\n");
-            trainButton.setDisable(false);
-        });
-
-        // Handle exceptions that occur during training
-        trainingTask.setOnFailed(_ -> {
-            logArea.appendText("\n❌ Training failed: "
-                    + trainingTask.getException().getMessage() + "\n");
-            trainButton.setDisable(false);
-        });
-
-        // Start training in a separate thread
-        new Thread(trainingTask).start();
+            // Keep streaming while more jobs are queued
+            if (scheduler.getUnfinishedCount() == 0) {
+                monitor.stop();
+                cancelButton.setDisable(true);
+            }
+        }));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,494 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.GraphicsEnvironment;
+
+/**
+ * TrainingConfig
+ * Immutable settings for one {@link TrainCNN#runTraining(TrainingConfig, java.util.function.Consumer)} run.
+ * Build instances with {@link Builder}; every setting has a sensible default.
+ */
+public final class TrainingConfig {
+    private final int epochs;
+    private final int batchSize;
+    private final long seed;
+    private final double learningRate;
+    private final double momentum;
+    private final int conv1Filters;
+    private final int conv2Filters;
+    private final int denseUnits;
+    private final int prefetchWorkers;
+    private final int prefetchQueueSize;
+    private final int dataParallelWorkers;
+    private final int averagingFrequency;
+    private final int statsFrequency;
+    private final int statsRetention;
+    private final boolean uiEnabled;
+    private final int checkpointEveryEpochs;
+    private final int checkpointEveryMinutes;
+    private final int checkpointRetention;
+    private final boolean resume;
+    private final int validationSize;
+    private final int fullEvaluationEveryEpochs;
+    private final int earlyStoppingPatience;
+    private final double earlyStoppingMinDelta;
+    private final int maxTrainingMinutes;
+    private final double augmentProbability;
+    private final double augmentMaxShift;
+    private final double augmentMaxRotation;
+    private final double augmentMaxScale;
+    private final double augmentThicknessProbability;
+
+    private TrainingConfig(Builder b) {
+        this.epochs = b.epochs;
+        this.batchSize = b.batchSize;
+        this.seed = b.seed;
+        this.learningRate = b.learningRate;
+        this.momentum = b.momentum;
+        this.conv1Filters = b.conv1Filters;
+        this.conv2Filters = b.conv2Filters;
+        this.denseUnits = b.denseUnits;
+        this.prefetchWorkers = b.prefetchWorkers;
+        this.prefetchQueueSize = b.prefetchQueueSize;
+        this.dataParallelWorkers = b.dataParallelWorkers;
+        this.averagingFrequency = b.averagingFrequency;
+        this.statsFrequency = b.statsFrequency;
+        this.statsRetention = b.statsRetention;
+        this.uiEnabled = b.uiEnabled;
+        this.checkpointEveryEpochs = b.checkpointEveryEpochs;
+        this.checkpointEveryMinutes = b.checkpointEveryMinutes;
+        this.checkpointRetention = b.checkpointRetention;
+        this.resume = b.resume;
+        this.validationSize = b.validationSize;
+        this.fullEvaluationEveryEpochs = b.fullEvaluationEveryEpochs;
+        this.earlyStoppingPatience = b.earlyStoppingPatience;
+        this.earlyStoppingMinDelta = b.earlyStoppingMinDelta;
+        this.maxTrainingMinutes = b.maxTrainingMinutes;
+        this.augmentProbability = b.augmentProbability;
+        this.augmentMaxShift = b.augmentMaxShift;
+        this.augmentMaxRotation = b.augmentMaxRotation;
+        this.augmentMaxScale = b.augmentMaxScale;
+        this.augmentThicknessProbability = b.augmentThicknessProbability;
+    }
+
+    /** @return Number of full passes over the training set */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /** @return Number of examples per minibatch */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** @return Random seed for weight init and data shuffling */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** @return Nesterov momentum learning rate */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /** @return Nesterov momentum coefficient */
+    public double getMomentum() {
+        return momentum;
+    }
+
+    /** @return Filters in the first convolution layer */
+    public int getConv1Filters() {
+        return conv1Filters;
+    }
+
+    /** @return Filters in the second convolution layer */
+    public int getConv2Filters() {
+        return conv2Filters;
+    }
+
+    /** @return Units in the fully connected layer */
+    public int getDenseUnits() {
+        return denseUnits;
+    }
+
+    /** @return Number of background threads loading minibatches (0 = load on the training thread) */
+    public int getPrefetchWorkers() {
+        return prefetchWorkers;
+    }
+
+    /** @return Maximum number of minibatches loaded ahead of training */
+    public int getPrefetchQueueSize() {
+        return prefetchQueueSize;
+    }
+
+    /** @return Number of replicas training on disjoint shards in parallel (1 = ordinary single-model training) */
+    public int getDataParallelWorkers() {
+        return dataParallelWorkers;
+    }
+
+    /** @return Minibatches each data-parallel worker fits between parameter averages */
+    public int getAveragingFrequency() {
+        return averagingFrequency;
+    }
+
+    /** @return Iterations between recorded training stats reports (0 = no stats reports) */
+    public int getStatsFrequency() {
+        return statsFrequency;
+    }
+
+    /** @return Number of most recent runs whose stats files are kept on disk */
+    public int getStatsRetention() {
+        return statsRetention;
+    }
+
+    /** @return Whether the DL4J UI server is started to show the run's stats */
+    public boolean isUiEnabled() {
+        return uiEnabled;
+    }
+
+    /** @return Epochs between checkpoints (0 = no epoch-based checkpoints) */
+    public int getCheckpointEveryEpochs() {
+        return checkpointEveryEpochs;
+    }
+
+    /** @return Minutes between checkpoints, also taken mid-epoch (0 = no time-based checkpoints) */
+    public int getCheckpointEveryMinutes() {
+        return checkpointEveryMinutes;
+    }
+
+    /** @return Number of most recent checkpoints kept on disk */
+    public int getCheckpointRetention() {
+        return checkpointRetention;
+    }
+
+    /** @return Whether an interrupted run with the same configuration continues from its latest checkpoint */
+    public boolean isResume() {
+        return resume;
+    }
+
+    /** @return Training examples held out to score every epoch (0 = score on the full test set instead) */
+    public int getValidationSize() {
+        return validationSize;
+    }
+
+    /** @return Epochs between full test set evaluations; the final model is always evaluated (0 = only at the end) */
+    public int getFullEvaluationEveryEpochs() {
+        return fullEvaluationEveryEpochs;
+    }
+
+    /**
+     * @return Epochs without improvement after which training stops early (0 = never stop on a plateau);
+     *         requires a validation set, since the best epoch is restored at the end
+     */
+    public int getEarlyStoppingPatience() {
+        return earlyStoppingPatience;
+    }
+
+    /** @return Accuracy gain an epoch must exceed to count as an improvement */
+    public double getEarlyStoppingMinDelta() {
+        return earlyStoppingMinDelta;
+    }
+
+    /** @return Wall-clock limit for the training loop; it stops after the epoch that crosses it (0 = no limit) */
+    public int getMaxTrainingMinutes() {
+        return maxTrainingMinutes;
+    }
+
+    /** @return Fraction of training examples randomly transformed each epoch (0 = no augmentation) */
+    public double getAugmentProbability() {
+        return augmentProbability;
+    }
+
+    /** @return Largest random shift, in pixels of the 28x28 image */
+    public double getAugmentMaxShift() {
+        return augmentMaxShift;
+    }
+
+    /** @return Largest random rotation, in degrees either way */
+    public double getAugmentMaxRotation() {
+        return augmentMaxRotation;
+    }
+
+    /** @return Largest random change of size, as a fraction (0.1 = 90% to 110%) */
+    public double getAugmentMaxScale() {
+        return augmentMaxScale;
+    }
+
+    /** @return Fraction of augmented examples whose strokes are thickened or thinned */
+    public double getAugmentThicknessProbability() {
+        return augmentThicknessProbability;
+    }
+
+    /** @return A builder pre-populated with this config's values */
+    @NotNull
+    public Builder toBuilder() {
+        return new Builder()
+                .epochs(epochs)
+                .batchSize(batchSize)
+                .seed(seed)
+                .learningRate(learningRate)
+                .momentum(momentum)
+                .conv1Filters(conv1Filters)
+                .conv2Filters(conv2Filters)
+                .denseUnits(denseUnits)
+                .prefetchWorkers(prefetchWorkers)
+                .prefetchQueueSize(prefetchQueueSize)
+                .dataParallelWorkers(dataParallelWorkers)
+                .averagingFrequency(averagingFrequency)
+                .statsFrequency(statsFrequency)
+                .statsRetention(statsRetention)
+                .uiEnabled(uiEnabled)
+                .checkpointEveryEpochs(checkpointEveryEpochs)
+                .checkpointEveryMinutes(checkpointEveryMinutes)
+                .checkpointRetention(checkpointRetention)
+                .resume(resume)
+                .validationSize(validationSize)
+                .fullEvaluationEveryEpochs(fullEvaluationEveryEpochs)
+                .earlyStoppingPatience(earlyStoppingPatience)
+                .earlyStoppingMinDelta(earlyStoppingMinDelta)
+                .maxTrainingMinutes(maxTrainingMinutes)
+                .augmentProbability(augmentProbability)
+                .augmentMaxShift(augmentMaxShift)
+                .augmentMaxRotation(augmentMaxRotation)
+                .augmentMaxScale(augmentMaxScale)
+                .augmentThicknessProbability(augmentThicknessProbability);
+    }
+
+    @Override
+    public String toString() {
+        return "TrainingConfig{epochs=" + epochs + ", batchSize=" + batchSize + ", seed=" + seed
+                + ", learningRate=" + learningRate + ", momentum=" + momentum + ", conv1Filters=" + conv1Filters
+                + ", conv2Filters=" + conv2Filters + ", denseUnits=" + denseUnits
+                + ", prefetchWorkers=" + prefetchWorkers + ", prefetchQueueSize=" + prefetchQueueSize
+                + ", dataParallelWorkers=" + dataParallelWorkers + ", averagingFrequency=" + averagingFrequency
+                + ", statsFrequency=" + statsFrequency + ", statsRetention=" + statsRetention + ", uiEnabled=" + uiEnabled
+                + ", checkpointEveryEpochs=" + checkpointEveryEpochs + ", checkpointEveryMinutes=" + checkpointEveryMinutes
+                + ", checkpointRetention=" + checkpointRetention + ", resume=" + resume
+                + ", validationSize=" + validationSize + ", fullEvaluationEveryEpochs=" + fullEvaluationEveryEpochs
+                + ", earlyStoppingPatience=" + earlyStoppingPatience + ", earlyStoppingMinDelta=" + earlyStoppingMinDelta
+                + ", maxTrainingMinutes=" + maxTrainingMinutes
+                + ", augmentProbability=" + augmentProbability + ", augmentMaxShift=" + augmentMaxShift
+                + ", augmentMaxRotation=" + augmentMaxRotation + ", augmentMaxScale=" + augmentMaxScale
+                + ", augmentThicknessProbability=" + augmentThicknessProbability + "}";
+    }
+
+    /**
+     * Builder for {@link TrainingConfig}.
+     */
+    public static final class Builder {
+        private int epochs = 10;
+        private int batchSize = 64;
+        private long seed = 1234;
+        private double learningRate = 0.006;
+        private double momentum = 0.9;
+        private int conv1Filters = 20;
+        private int conv2Filters = 50;
+        private int denseUnits = 500;
+        private int prefetchWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        private int prefetchQueueSize = 8;
+        private int dataParallelWorkers = 1;
+        private int averagingFrequency = 5;
+        private int statsFrequency = 50;
+        private int statsRetention = 5;
+        private boolean uiEnabled = !GraphicsEnvironment.isHeadless();
+        private int checkpointEveryEpochs = 1;
+        private int checkpointEveryMinutes = 10;
+        private int checkpointRetention = 3;
+        private boolean resume = true;
+        private int validationSize = 0;
+        private int fullEvaluationEveryEpochs = 0;
+        private int earlyStoppingPatience = 0;
+        private double earlyStoppingMinDelta = 0.001;
+        private int maxTrainingMinutes = 0;
+        private double augmentProbability = 0;
+        private double augmentMaxShift = 2.0;
+        private double augmentMaxRotation = 12.0;
+        private double augmentMaxScale = 0.1;
+        private double augmentThicknessProbability = 0.3;
+
+        public Builder epochs(int epochs) {
+            if (epochs <= 0) throw new IllegalArgumentException("epochs must be positive: " + epochs);
+            this.epochs = epochs;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder learningRate(double learningRate) {
+            if (!(learningRate > 0)) throw new IllegalArgumentException("learningRate must be positive: " + learningRate);
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        public Builder momentum(double momentum) {
+            if (!(momentum >= 0 && momentum < 1)) throw new IllegalArgumentException("momentum must be in [0, 1): " + momentum);
+            this.momentum = momentum;
+            return this;
+        }
+
+        public Builder conv1Filters(int conv1Filters) {
+            if (conv1Filters <= 0) throw new IllegalArgumentException("conv1Filters must be positive: " + conv1Filters);
+            this.conv1Filters = conv1Filters;
+            return this;
+        }
+
+        public Builder conv2Filters(int conv2Filters) {
+            if (conv2Filters <= 0) throw new IllegalArgumentException("conv2Filters must be positive: " + conv2Filters);
+            this.conv2Filters = conv2Filters;
+            return this;
+        }
+
+        public Builder denseUnits(int denseUnits) {
+            if (denseUnits <= 0) throw new IllegalArgumentException("denseUnits must be positive: " + denseUnits);
+            this.denseUnits = denseUnits;
+            return this;
+        }
+
+        public Builder prefetchWorkers(int prefetchWorkers) {
+            if (prefetchWorkers < 0) throw new IllegalArgumentException("prefetchWorkers must be >= 0: " + prefetchWorkers);
+            this.prefetchWorkers = prefetchWorkers;
+            return this;
+        }
+
+        public Builder prefetchQueueSize(int prefetchQueueSize) {
+            if (prefetchQueueSize <= 0) throw new IllegalArgumentException("prefetchQueueSize must be positive: " + prefetchQueueSize);
+            this.prefetchQueueSize = prefetchQueueSize;
+            return this;
+        }
+
+        public Builder dataParallelWorkers(int dataParallelWorkers) {
+            if (dataParallelWorkers <= 0) throw new IllegalArgumentException("dataParallelWorkers must be positive: " + dataParallelWorkers);
+            this.dataParallelWorkers = dataParallelWorkers;
+            return this;
+        }
+
+        public Builder averagingFrequency(int averagingFrequency) {
+            if (averagingFrequency <= 0) throw new IllegalArgumentException("averagingFrequency must be positive: " + averagingFrequency);
+            this.averagingFrequency = averagingFrequency;
+            return this;
+        }
+
+        public Builder statsFrequency(int statsFrequency) {
+            if (statsFrequency < 0) throw new IllegalArgumentException("statsFrequency must be >= 0: " + statsFrequency);
+            this.statsFrequency = statsFrequency;
+            return this;
+        }
+
+        public Builder statsRetention(int statsRetention) {
+            if (statsRetention <= 0) throw new IllegalArgumentException("statsRetention must be positive: " + statsRetention);
+            this.statsRetention = statsRetention;
+            return this;
+        }
+
+        public Builder uiEnabled(boolean uiEnabled) {
+            this.uiEnabled = uiEnabled;
+            return this;
+        }
+
+        public Builder checkpointEveryEpochs(int checkpointEveryEpochs) {
+            if (checkpointEveryEpochs < 0) throw new IllegalArgumentException("checkpointEveryEpochs must be >= 0: " + checkpointEveryEpochs);
+            this.checkpointEveryEpochs = checkpointEveryEpochs;
+            return this;
+        }
+
+        public Builder checkpointEveryMinutes(int checkpointEveryMinutes) {
+            if (checkpointEveryMinutes < 0) throw new IllegalArgumentException("checkpointEveryMinutes must be >= 0: " + checkpointEveryMinutes);
+            this.checkpointEveryMinutes = checkpointEveryMinutes;
+            return this;
+        }
+
+        public Builder checkpointRetention(int checkpointRetention) {
+            if (checkpointRetention <= 0) throw new IllegalArgumentException("checkpointRetention must be positive: " + checkpointRetention);
+            this.checkpointRetention = checkpointRetention;
+            return this;
+        }
+
+        public Builder resume(boolean resume) {
+            this.resume = resume;
+            return this;
+        }
+
+        public Builder validationSize(int validationSize) {
+            if (validationSize < 0) throw new IllegalArgumentException("validationSize must be >= 0: " + validationSize);
+            this.validationSize = validationSize;
+            return this;
+        }
+
+        public Builder fullEvaluationEveryEpochs(int fullEvaluationEveryEpochs) {
+            if (fullEvaluationEveryEpochs < 0) throw new IllegalArgumentException("fullEvaluationEveryEpochs must be >= 0: " + fullEvaluationEveryEpochs);
+            this.fullEvaluationEveryEpochs = fullEvaluationEveryEpochs;
+            return this;
+        }
+
+        public Builder earlyStoppingPatience(int earlyStoppingPatience) {
+            if (earlyStoppingPatience < 0) throw new IllegalArgumentException("earlyStoppingPatience must be >= 0: " + earlyStoppingPatience);
+            this.earlyStoppingPatience = earlyStoppingPatience;
+            return this;
+        }
+
+        public Builder earlyStoppingMinDelta(double earlyStoppingMinDelta) {
+            if (!(earlyStoppingMinDelta >= 0)) throw new IllegalArgumentException("earlyStoppingMinDelta must be >= 0: " + earlyStoppingMinDelta);
+            this.earlyStoppingMinDelta = earlyStoppingMinDelta;
+            return this;
+        }
+
+        public Builder maxTrainingMinutes(int maxTrainingMinutes) {
+            if (maxTrainingMinutes < 0) throw new IllegalArgumentException("maxTrainingMinutes must be >= 0: " + maxTrainingMinutes);
+            this.maxTrainingMinutes = maxTrainingMinutes;
+            return this;
+        }
+
+        public Builder augmentProbability(double augmentProbability) {
+            if (!(augmentProbability >= 0 && augmentProbability <= 1)) throw new IllegalArgumentException("augmentProbability must be in [0, 1]: " + augmentProbability);
+            this.augmentProbability = augmentProbability;
+            return this;
+        }
+
+        public Builder augmentMaxShift(double augmentMaxShift) {
+            if (!(augmentMaxShift >= 0)) throw new IllegalArgumentException("augmentMaxShift must be >= 0: " + augmentMaxShift);
+            this.augmentMaxShift = augmentMaxShift;
+            return this;
+        }
+
+        public Builder augmentMaxRotation(double augmentMaxRotation) {
+            if (!(augmentMaxRotation >= 0 && augmentMaxRotation <= 180)) throw new IllegalArgumentException("augmentMaxRotation must be in [0, 180]: " + augmentMaxRotation);
+            this.augmentMaxRotation = augmentMaxRotation;
+            return this;
+        }
+
+        public Builder augmentMaxScale(double augmentMaxScale) {
+            if (!(augmentMaxScale >= 0 && augmentMaxScale < 1)) throw new IllegalArgumentException("augmentMaxScale must be in [0, 1): " + augmentMaxScale);
+            this.augmentMaxScale = augmentMaxScale;
+            return this;
+        }
+
+        public Builder augmentThicknessProbability(double augmentThicknessProbability) {
+            if (!(augmentThicknessProbability >= 0 && augmentThicknessProbability <= 1)) throw new IllegalArgumentException("augmentThicknessProbability must be in [0, 1]: " + augmentThicknessProbability);
+            this.augmentThicknessProbability = augmentThicknessProbability;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException If early stopping is on without a validation set: the best epoch
+         *                                  would then be chosen, and reported, on the test set
+         */
+        @NotNull
+        public TrainingConfig build() {
+            if (earlyStoppingPatience > 0 && validationSize == 0) {
+                throw new IllegalArgumentException("earlyStoppingPatience " + earlyStoppingPatience
+                        + " requires a validation set (validationSize > 0); otherwise the model would be selected on the test set");
+            }
+            return new TrainingConfig(this);
+        }
+    }
+}
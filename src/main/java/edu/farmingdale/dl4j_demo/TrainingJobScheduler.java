@@ -0,0 +1,266 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * TrainingJobScheduler
+ * Runs training jobs one at a time, in submission order, on a single
+ * background thread, with a bounded queue of jobs waiting behind it.
+ *
+ * Training writes fixed files (checkpoints, the model zip), so jobs never run
+ * concurrently: a job only finishes once training has returned, and training
+ * only returns once its background checkpoint and model writes are on disk (see
+ * {@link CheckpointManager#close()}). The next job therefore starts from the
+ * files the previous one left behind, never from writes still in flight.
+ * Each {@link Job} has futures for its start, its progress
+ * samples and its completion, and can be cancelled at any time: a queued job
+ * is dropped, a running one stops after its current iteration (see
+ * {@link TrainCNN#runTraining(TrainingConfig, Consumer, Consumer, java.util.function.BooleanSupplier)}).
+ * A job that finishes normally hot-swaps the served model; inference keeps
+ * running on the old one until then.
+ */
+public class TrainingJobScheduler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(TrainingJobScheduler.class);
+
+    /** Lifecycle of a job. */
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    /** Runs one training job; {@code TrainCNN::runTraining} outside of tests. */
+    @FunctionalInterface
+    interface Trainer {
+        void train(TrainingConfig config, Consumer<String> logConsumer, Consumer<TrainingProgress> progressConsumer,
+                   BooleanSupplier cancelRequested) throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Trainer trainer;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Set<Job> unfinished = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One submitted training run.
+     */
+    public final class Job {
+        private final int id;
+        private final TrainingConfig config;
+        private final Consumer<String> logConsumer;
+        private final Consumer<TrainingProgress> progressConsumer;
+        private final Runnable task = this::run;
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<TrainingProgress>> nextProgress =
+                new AtomicReference<>(new CompletableFuture<>());
+        private volatile State state = State.QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile TrainingProgress latestProgress;
+
+        private Job(int id, TrainingConfig config, Consumer<String> logConsumer, Consumer<TrainingProgress> progressConsumer) {
+            this.id = id;
+            this.config = config;
+            this.logConsumer = logConsumer;
+            this.progressConsumer = progressConsumer;
+        }
+
+        /** @return Sequence number, starting at 1 */
+        public int getId() {
+            return id;
+        }
+
+        @NotNull
+        public TrainingConfig getConfig() {
+            return config;
+        }
+
+        @NotNull
+        public State getState() {
+            return state;
+        }
+
+        /** @return True once the job has succeeded, failed or been cancelled */
+        public boolean isDone() {
+            State s = state;
+            return s != State.QUEUED && s != State.RUNNING;
+        }
+
+        /** @return The most recent progress sample, or null if there is none yet */
+        @Nullable
+        public TrainingProgress getLatestProgress() {
+            return latestProgress;
+        }
+
+        /** @return Completes when the job starts training; exceptionally if it is cancelled while queued */
+        @NotNull
+        public CompletableFuture<Void> started() {
+            return started;
+        }
+
+        /**
+         * @return Completes normally if the job succeeded (the new model is then being served and its
+         *         files are written), with a {@link CancellationException} if it was cancelled, or with
+         *         the training error
+         */
+        @NotNull
+        public CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        /**
+         * @return Completes with the next progress sample, or with the latest one
+         *         (null if there was none) once the job has finished
+         */
+        @NotNull
+        public CompletableFuture<TrainingProgress> nextProgress() {
+            CompletableFuture<TrainingProgress> next = nextProgress.get();
+            if (isDone()) {
+                next.complete(latestProgress);
+            }
+            return next;
+        }
+
+        /**
+         * Requests cancellation: a queued job is dropped right away, a running one
+         * stops after its current iteration.
+         * @return False if the job had already finished
+         */
+        public boolean cancel() {
+            if (isDone()) {
+                return false;
+            }
+            cancelRequested = true;
+            if (executor.remove(task)) {
+                finish(State.CANCELLED, new CancellationException("Training job " + id + " cancelled before it started"));
+            }
+            return true;
+        }
+
+        /** Training thread. */
+        private void run() {
+            if (cancelRequested) {
+                finish(State.CANCELLED, new CancellationException("Training job " + id + " cancelled before it started"));
+                return;
+            }
+            state = State.RUNNING;
+            started.complete(null);
+            logConsumer.accept(String.format("Training job %d started.", id));
+            try {
+                trainer.train(config, logConsumer, this::progress, () -> cancelRequested);
+                finish(State.SUCCEEDED, null);
+            } catch (CancellationException e) {
+                logConsumer.accept(String.format("Training job %d cancelled. Checkpoints are kept, so a job with the "
+                        + "same settings resumes where this one stopped.", id));
+                finish(State.CANCELLED, e);
+            } catch (Throwable e) {
+                log.warn("Training job {} failed", id, e);
+                finish(State.FAILED, e);
+            }
+        }
+
+        private void progress(TrainingProgress sample) {
+            latestProgress = sample;
+            if (progressConsumer != null) {
+                progressConsumer.accept(sample);
+            }
+            nextProgress.getAndSet(new CompletableFuture<>()).complete(sample);
+        }
+
+        private void finish(State outcome, @Nullable Throwable error) {
+            state = outcome;
+            unfinished.remove(this);
+            if (error == null) {
+                completion.complete(null);
+            } else {
+                started.completeExceptionally(error); // No-op if the job had started
+                completion.completeExceptionally(error);
+            }
+            nextProgress.get().complete(latestProgress);
+        }
+
+        @Override
+        public String toString() {
+            return "Job{id=" + id + ", state=" + state + "}";
+        }
+    }
+
+    /**
+     * @param queueCapacity Jobs that may wait behind the running one
+     */
+    public TrainingJobScheduler(int queueCapacity) {
+        this(queueCapacity, TrainCNN::runTraining);
+    }
+
+    /**
+     * @param queueCapacity Jobs that may wait behind the running one
+     * @param trainer       Runs each job
+     */
+    TrainingJobScheduler(int queueCapacity, @NotNull Trainer trainer) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        this.trainer = trainer;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "training-job");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queues a training run.
+     * @param config           Settings for this run
+     * @param logConsumer      Receives the run's log lines, on the training thread
+     * @param progressConsumer Receives its progress samples, on the training thread (may be null)
+     * @return The queued job
+     * @throws RejectedExecutionException If the queue is full or the scheduler is closed
+     */
+    @NotNull
+    public Job submit(@NotNull TrainingConfig config, @NotNull Consumer<String> logConsumer,
+                      @Nullable Consumer<TrainingProgress> progressConsumer) {
+        Job job = new Job(nextId.incrementAndGet(), config, logConsumer, progressConsumer);
+        unfinished.add(job);
+        try {
+            executor.execute(job.task);
+        } catch (RejectedExecutionException e) {
+            unfinished.remove(job);
+            throw new RejectedExecutionException("Training queue is full (" + executor.getQueue().size()
+                    + " job(s) waiting)", e);
+        }
+        return job;
+    }
+
+    /** @return Jobs queued or running */
+    public int getUnfinishedCount() {
+        return unfinished.size();
+    }
+
+    /** Cancels every queued and running job. */
+    public void cancelAll() {
+        unfinished.forEach(Job::cancel);
+    }
+
+    /**
+     * Cancels every job and stops accepting new ones. Does not wait for the
+     * running job to reach its next cancellation check.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        cancelAll();
+    }
+}
@@ -0,0 +1,126 @@
+package edu.farmingdale.dl4j_demo;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.TextArea;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrainingMonitor
+ * Streams a training run's log lines and progress samples into the UI.
+ *
+ * The training thread only adds to lock-free queues. An {@link AnimationTimer}
+ * drains them on the FX thread at most every {@link #FLUSH_INTERVAL_MILLIS}
+ * ms: all new lines are appended in one {@code appendText} call and all new
+ * samples are added to the chart in one batch. The log keeps the last
+ * {@code maxLines} lines and the chart the last {@code maxPoints} samples, so a
+ * long run cannot flood the FX thread or grow memory without limit.
+ */
+public class TrainingMonitor {
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    private final TextArea logArea;
+    private final XYChart.Series<Number, Number> throughput;
+    private final int maxLines;
+    private final int maxPoints;
+    private final Queue<String> pendingLines = new ConcurrentLinkedQueue<>();
+    private final Queue<TrainingProgress> pendingProgress = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Integer> lineLengths = new ArrayDeque<>(); // Lengths (with '\n') of the lines shown
+    private final AnimationTimer timer;
+    private long lastFlush;
+
+    /**
+     * @param logArea    Text area showing the log; owned by this monitor from now on
+     * @param throughput Chart series receiving (iteration, examples/sec) points
+     * @param maxLines   Log lines kept in the text area
+     * @param maxPoints  Points kept in the chart
+     */
+    public TrainingMonitor(@NotNull TextArea logArea, @NotNull XYChart.Series<Number, Number> throughput,
+                           int maxLines, int maxPoints) {
+        if (maxLines <= 0 || maxPoints <= 0) {
+            throw new IllegalArgumentException("Line and point limits must be positive");
+        }
+        this.logArea = logArea;
+        this.throughput = throughput;
+        this.maxLines = maxLines;
+        this.maxPoints = maxPoints;
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (now - lastFlush >= TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS)) {
+                    lastFlush = now;
+                    flush();
+                }
+            }
+        };
+    }
+
+    /** Queues a log line. Safe to call from any thread. */
+    public void log(@NotNull String line) {
+        pendingLines.add(line);
+    }
+
+    /** Queues a progress sample. Safe to call from any thread. */
+    public void progress(@NotNull TrainingProgress sample) {
+        pendingProgress.add(sample);
+    }
+
+    /** Clears the log and chart and starts flushing. FX thread only. */
+    public void start() {
+        pendingLines.clear();
+        pendingProgress.clear();
+        lineLengths.clear();
+        logArea.clear();
+        throughput.getData().clear();
+        timer.start();
+    }
+
+    /** Flushes whatever is still queued and stops flushing. FX thread only. */
+    public void stop() {
+        timer.stop();
+        flush();
+    }
+
+    /** Moves everything queued so far into the text area and chart. FX thread only. */
+    private void flush() {
+        if (!pendingLines.isEmpty()) {
+            StringBuilder text = new StringBuilder();
+            String line;
+            while ((line = pendingLines.poll()) != null) {
+                text.append(line).append('\n');
+                lineLengths.addLast(line.length() + 1);
+            }
+            logArea.appendText(text.toString());
+
+            // Drop the oldest lines beyond the limit with a single edit at the start
+            int drop = 0;
+            while (lineLengths.size() > maxLines) {
+                drop += lineLengths.removeFirst();
+            }
+            if (drop > 0) {
+                logArea.deleteText(0, drop);
+            }
+        }
+
+        if (!pendingProgress.isEmpty()) {
+            List<XYChart.Data<Number, Number>> points = new ArrayList<>();
+            TrainingProgress p;
+            while ((p = pendingProgress.poll()) != null) {
+                points.add(new XYChart.Data<>(p.iteration(), p.examplesPerSecond()));
+            }
+            ObservableList<XYChart.Data<Number, Number>> data = throughput.getData();
+            data.addAll(points);
+            if (data.size() > maxPoints) {
+                data.remove(0, data.size() - maxPoints);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package edu.farmingdale.dl4j_demo;
+
+/**
+ * TrainingProgress
+ * One progress sample from a training run, for live charts.
+ * @param epoch             Epoch in progress (0-based)
+ * @param iteration         Training iterations (minibatches) completed so far
+ * @param score             Loss of the latest minibatch
+ * @param examplesPerSecond Training throughput since the previous sample
+ */
+public record TrainingProgress(int epoch, int iteration, double score, double examplesPerSecond) {}
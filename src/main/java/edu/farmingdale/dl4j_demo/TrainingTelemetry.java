@@ -0,0 +1,173 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.core.storage.StatsStorage;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
+import org.deeplearning4j.ui.api.UIServer;
+import org.deeplearning4j.ui.model.stats.StatsListener;
+import org.deeplearning4j.ui.model.storage.FileStatsStorage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * TrainingTelemetry
+ * Builds the listeners for one training run: score logging, sampled
+ * {@link StatsListener} reports, live progress samples and per-step timing.
+ *
+ * Stats reports go to a file-backed store, one file per run under
+ * {@code training-stats/}; only the newest {@link TrainingConfig#getStatsRetention()}
+ * files are kept. The DL4J UI server is only started when enabled in the
+ * config, and shows the latest run; the previous run's store is detached and
+ * closed, so repeated runs in one JVM do not accumulate stats in memory.
+ */
+public class TrainingTelemetry implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(TrainingTelemetry.class);
+    static final String STATS_PATH = "training-stats";
+    private static final String RUN_PREFIX = "run-";
+    private static final String RUN_SUFFIX = ".dl4j";
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int PROGRESS_FREQUENCY = 10;  // Iterations between progress samples
+    private static final int LOG_SCORE_FREQUENCY = 100; // Iterations between score lines in the training log
+    private static final PerfMetrics.Gauge EXAMPLES_PER_SECOND = PerfMetrics.gauge("training_examples_per_second",
+            "Training throughput over the last few iterations");
+
+    private static StatsStorage uiStorage; // Store currently shown by the UI server
+    private static File uiStorageFile;     // ... and the file behind it
+
+    private final StepTimingListener stepTiming = new StepTimingListener();
+    private final List<TrainingListener> listeners = new ArrayList<>();
+    private StatsStorage storage;
+    private File storageFile;
+
+    /**
+     * @param config           Run settings (stats frequency, retention, UI)
+     * @param logConsumer      Consumer that receives one log line per update
+     * @param progressConsumer Receives a progress sample every few iterations (may be null)
+     */
+    public TrainingTelemetry(@NotNull TrainingConfig config, @NotNull Consumer<String> logConsumer,
+                             @Nullable Consumer<TrainingProgress> progressConsumer) {
+        listeners.add(stepTiming.timed(new ScoreIterationListener(LOG_SCORE_FREQUENCY))); // Always log score to console
+
+        // Progress samples for live charts; every few of them also go to the training log
+        // In data-parallel mode only the first replica reports, so its example count is scaled by the worker count
+        int replicas = Math.max(1, config.getDataParallelWorkers());
+        listeners.add(stepTiming.timed(new ProgressListener(PROGRESS_FREQUENCY, replicas, p -> {
+            EXAMPLES_PER_SECOND.set(p.examplesPerSecond());
+            if (progressConsumer != null) {
+                progressConsumer.accept(p);
+            }
+            if (p.iteration() % LOG_SCORE_FREQUENCY == 0) {
+                logConsumer.accept(String.format("Iteration %d: score %.4f, %.0f examples/sec",
+                        p.iteration(), p.score(), p.examplesPerSecond()));
+            }
+        })));
+
+        if (config.getStatsFrequency() > 0) {
+            try {
+                storageFile = newRunFile(config.getStatsRetention());
+                storage = new FileStatsStorage(storageFile);
+                listeners.add(stepTiming.timed(new StatsListener(storage, config.getStatsFrequency())));
+                logConsumer.accept(String.format("Recording training stats every %d iterations to %s",
+                        config.getStatsFrequency(), storageFile.getPath()));
+            } catch (Exception e) {
+                log.warn("Could not create training stats storage. Training will continue without stats. Error: {}", e.getMessage(), e);
+                logConsumer.accept("Warning: training stats storage could not be created. Check logs for details.");
+            }
+        }
+
+        // Try to set up UI, but don't let it stop training if it fails
+        if (config.isUiEnabled() && storage != null) {
+            try {
+                attachToUi(storage, storageFile);
+                logConsumer.accept("UI Server attached. Access at http://localhost:9000");
+            } catch (Exception e) {
+                log.warn("Could not start DL4J UI Server. Training will continue without UI. Error: {}", e.getMessage(), e);
+                logConsumer.accept("Warning: DL4J UI Server could not start. Check logs for details (e.g., port 9000 might be in use).");
+            }
+        }
+
+        // Last, so the phases it measures exclude the time spent in the listeners above
+        listeners.add(stepTiming);
+    }
+
+    /** @return Listeners to register on the network, in order */
+    @NotNull
+    public List<TrainingListener> getListeners() {
+        return Collections.unmodifiableList(listeners);
+    }
+
+    /** @return Per-step timing, including the overhead of the other telemetry listeners */
+    @NotNull
+    public StepTimingListener getStepTiming() {
+        return stepTiming;
+    }
+
+    /**
+     * Closes the stats store, unless the UI server is showing it; then it stays
+     * open until the next run replaces it.
+     */
+    @Override
+    public void close() {
+        synchronized (TrainingTelemetry.class) {
+            if (storage != null && storage != uiStorage) {
+                closeQuietly(storage);
+            }
+        }
+    }
+
+    /** Shows {@code storage} in the UI server, detaching and closing the previous run's store. */
+    private static synchronized void attachToUi(StatsStorage storage, File file) {
+        UIServer uiServer = UIServer.getInstance();
+        if (uiStorage != null) {
+            uiServer.detach(uiStorage);
+            closeQuietly(uiStorage);
+        }
+        uiServer.attach(storage);
+        uiStorage = storage;
+        uiStorageFile = file;
+    }
+
+    /**
+     * Picks a new run file name and deletes the oldest run files so that, with
+     * the new one, at most {@code retention} remain. Names sort chronologically.
+     */
+    private static synchronized File newRunFile(int retention) {
+        File dir = new File(STATS_PATH);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Cannot create directory " + dir.getAbsolutePath());
+        }
+        File[] runs = dir.listFiles((d, name) -> name.startsWith(RUN_PREFIX) && name.endsWith(RUN_SUFFIX));
+        if (runs != null && runs.length >= retention) {
+            Arrays.sort(runs);
+            for (int i = 0; i <= runs.length - retention; i++) {
+                File run = runs[i];
+                if (run.equals(uiStorageFile)) {
+                    continue; // Still open in the UI; removed on a later run
+                }
+                if (!run.delete()) {
+                    log.warn("Could not delete old training stats file {}", run.getAbsolutePath());
+                }
+            }
+        }
+        return new File(dir, RUN_PREFIX + LocalDateTime.now().format(RUN_NAME) + RUN_SUFFIX);
+    }
+
+    private static void closeQuietly(StatsStorage storage) {
+        try {
+            storage.close();
+        } catch (Exception e) {
+            log.warn("Could not close training stats storage {}: {}", storage, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * InferenceEngineTest
+ * Many threads predicting through the replica pool at once must get exactly
+ * what one network on one thread computes.
+ */
+class InferenceEngineTest {
+    private static final int THREADS = 8;
+    private static final int REPLICAS = 3; // Fewer than the threads, so callers also wait for replicas
+    private static final int ROUNDS = 8;
+
+    @Test
+    void concurrentOutputMatchesSingleThreadedNetwork() throws Exception {
+        MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(new TrainingConfig.Builder().build()));
+        model.init();
+        Nd4j.getRandom().setSeed(1234);
+
+        // Reference outputs, one network, one thread; batch sizes vary so replicas see different shapes
+        List<INDArray> inputs = new ArrayList<>();
+        List<INDArray> expected = new ArrayList<>();
+        for (int size : new int[]{1, 7, 32, 1, 16, 3}) {
+            INDArray input = Nd4j.rand(DataType.FLOAT, size, 1, 28, 28);
+            inputs.add(input);
+            expected.add(model.output(input));
+        }
+
+        InferenceEngine engine = new InferenceEngine(model, new ImagePreProcessingScaler(0, 1), REPLICAS);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Callable<Integer>> callers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t; // Each thread walks the inputs from a different starting point
+            callers.add(() -> {
+                go.await();
+                int mismatches = 0;
+                for (int r = 0; r < ROUNDS; r++) {
+                    for (int i = 0; i < inputs.size(); i++) {
+                        int k = (i + offset) % inputs.size();
+                        if (!engine.output(inputs.get(k)).equalsWithEps(expected.get(k), 1e-5)) {
+                            mismatches++;
+                        }
+                    }
+                }
+                return mismatches;
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (Callable<Integer> caller : callers) {
+                results.add(pool.submit(caller));
+            }
+            go.countDown();
+            int mismatches = 0;
+            for (Future<Integer> result : results) {
+                mismatches += result.get(5, TimeUnit.MINUTES);
+            }
+            assertEquals(0, mismatches, "outputs differing from the single-threaded network");
+        } finally {
+            pool.shutdownNow();
+            assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+}
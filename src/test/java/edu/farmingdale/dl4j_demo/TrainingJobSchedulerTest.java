@@ -0,0 +1,63 @@
+package edu.farmingdale.dl4j_demo;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.dataset.api.preprocessor.ImagePreProcessingScaler;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * TrainingJobSchedulerTest
+ * Jobs run back to back: the second must see the first one's files in their
+ * final state, never its checkpoint writes still in flight.
+ */
+class TrainingJobSchedulerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void secondJobStartsFresh() throws Exception {
+        TrainingConfig config = new TrainingConfig.Builder().epochs(1).checkpointEveryEpochs(1).build();
+        MultiLayerNetwork model = new MultiLayerNetwork(TrainCNN.buildConfiguration(config));
+        model.init();
+        File checkpointDir = dir.resolve("checkpoints").toFile();
+        File modelFile = dir.resolve("model.zip").toFile();
+        File snapshotFile = dir.resolve("model.snapshot").toFile();
+
+        // What each job found when it started
+        List<String> seen = new CopyOnWriteArrayList<>();
+        // The checkpoint lifecycle of TrainCNN.runTraining: resume or clear, checkpoint the epoch,
+        // queue the final model (which deletes the checkpoints once written), close
+        TrainingJobScheduler.Trainer trainer = (cfg, logConsumer, progress, cancelled) -> {
+            try (CheckpointManager checkpoints = new CheckpointManager(cfg, new ImagePreProcessingScaler(0, 1),
+                    10, logConsumer, checkpointDir)) {
+                CheckpointManager.Checkpoint checkpoint = checkpoints.latest();
+                seen.add((checkpoint == null ? "fresh" : "resumed " + checkpoint.file().getName())
+                        + (modelFile.exists() ? ", model saved" : ", no model"));
+                if (checkpoint == null) {
+                    checkpoints.clear();
+                }
+                checkpoints.beginEpoch(0, 0);
+                checkpoints.endEpoch(model);
+                checkpoints.saveFinal(model, modelFile, snapshotFile);
+            }
+        };
+
+        try (TrainingJobScheduler scheduler = new TrainingJobScheduler(1, trainer)) {
+            TrainingJobScheduler.Job first = scheduler.submit(config, msg -> { }, null);
+            TrainingJobScheduler.Job second = scheduler.submit(config, msg -> { }, null);
+            first.completion().get(2, TimeUnit.MINUTES);
+            second.completion().get(2, TimeUnit.MINUTES);
+        }
+
+        assertEquals(List.of("fresh, no model", "fresh, model saved"), seen);
+        assertEquals(0, checkpointDir.list().length, "checkpoints left behind");
+    }
+}